@@ -373,6 +373,7 @@ public final class Engine {
                 }
                 timer += time.getDeltaTime();
                 Debug.updateFrame();
+                renderer.flush();
                 window.updateFrame();
                 handleInterrupt();
             }
@@ -35,6 +35,10 @@ import java.awt.image.DataBufferInt;
  * @author Aryan Rai
  */
 public final class Window {
+    /**
+     * This is the maximum number of dirty regions tracked before nearby regions are forced to merge.
+     */
+    private static final int MAX_DIRTY_REGIONS = 32;
     /**
      * This is the JFrame object.
      */
@@ -71,6 +75,30 @@ public final class Window {
      * This is the scale each pixel of the window.
      */
     private final int pixelScale;
+    /**
+     * This is the dirty regions of the frame buffer, four values per region, right and bottom edges exclusive.
+     */
+    private final int[] dirtyRegions;
+    /**
+     * This is the number of dirty regions of the frame buffer.
+     */
+    private int dirtyRegionCount;
+    /**
+     * This is the index of the dirty region that was grown last.
+     */
+    private int lastDirtyRegion;
+    /**
+     * This is the distance in pixels under which dirty regions are merged.
+     */
+    private int dirtyMergeDistance;
+    /**
+     * This is the flag to check if only the dirty regions are drawn to the window.
+     */
+    private boolean isPartialPresentationEnabled;
+    /**
+     * This is the flag to check if the whole frame has to be drawn to the window on the next update.
+     */
+    private volatile boolean isFullRedrawNeeded;
 
     /**
      * This is the constructor of the Window class.
@@ -93,7 +121,10 @@ public final class Window {
     public Window(String title, int width, int height, int pixelScale) {
         this.title = title == null ? "Untitled" : title;
         frame = new JFrame(title);
-        canvas = new Canvas();
+        canvas = new WindowCanvas();
+        dirtyRegions = new int[MAX_DIRTY_REGIONS * 4];
+        dirtyMergeDistance = 8;
+        isFullRedrawNeeded = true;
 
         GraphicsEnvironment graphicsEnvironment = GraphicsEnvironment.getLocalGraphicsEnvironment();
         Rectangle rect;
@@ -168,12 +199,182 @@ public final class Window {
 
     /**
      * This method draws the updated frame to the window.
+     * If partial presentation is enabled, only the dirty regions are drawn,
+     * unless the whole frame is dirty or the contents of the window were lost.
      */
     public void updateFrame() {
-        graphics.drawImage(image, 0, 0, canvas.getWidth(), canvas.getHeight(), null);
+        if (!isPartialPresentationEnabled || isFullRedrawNeeded || strategy.contentsLost() || strategy.contentsRestored()) {
+            isFullRedrawNeeded = false;
+            graphics.drawImage(image, 0, 0, canvas.getWidth(), canvas.getHeight(), null);
+        } else {
+            mergeDirtyRegions();
+            int area = 0;
+            for (int i = 0; i < dirtyRegionCount * 4; i += 4)
+                area += (dirtyRegions[i + 2] - dirtyRegions[i]) * (dirtyRegions[i + 3] - dirtyRegions[i + 1]);
+            if (area * 2 >= width * height) {
+                graphics.drawImage(image, 0, 0, canvas.getWidth(), canvas.getHeight(), null);
+            } else {
+                int canvasWidth = canvas.getWidth();
+                int canvasHeight = canvas.getHeight();
+                for (int i = 0; i < dirtyRegionCount * 4; i += 4) {
+                    int x0 = dirtyRegions[i];
+                    int y0 = dirtyRegions[i + 1];
+                    int x1 = dirtyRegions[i + 2];
+                    int y1 = dirtyRegions[i + 3];
+                    // Rounding the left and top edges down and the right and bottom edges up makes neighboring
+                    // regions overlap under a fractional scale, instead of leaving seams of stale pixels.
+                    graphics.drawImage(image, Math.floorDiv(x0 * canvasWidth, width),
+                            Math.floorDiv(y0 * canvasHeight, height), -Math.floorDiv(-x1 * canvasWidth, width),
+                            -Math.floorDiv(-y1 * canvasHeight, height), x0, y0, x1, y1, null);
+                }
+            }
+        }
+        dirtyRegionCount = 0;
         strategy.show();
     }
 
+    /**
+     * This method enables partial presentation.
+     * While it is enabled, updateFrame() only draws the regions of the frame buffer that were marked dirty,
+     * so everything that modifies the frame buffer has to mark the modified region dirty.
+     * Renderer does this for every draw call.
+     */
+    public void enablePartialPresentation() {
+        isPartialPresentationEnabled = true;
+        isFullRedrawNeeded = true;
+        dirtyRegionCount = 0;
+    }
+
+    /**
+     * This method disables partial presentation, which is the default.
+     * The whole frame is drawn to the window on every update.
+     */
+    public void disablePartialPresentation() {
+        isPartialPresentationEnabled = false;
+        dirtyRegionCount = 0;
+    }
+
+    /**
+     * This method checks if partial presentation is enabled.
+     *
+     * @return True if partial presentation is enabled, false otherwise.
+     */
+    public boolean isPartialPresentationEnabled() {
+        return isPartialPresentationEnabled;
+    }
+
+    /**
+     * This method sets the distance under which dirty regions are merged into one region.
+     * Larger distances draw fewer but larger regions.
+     *
+     * @param distance The distance in pixels of the frame buffer.
+     *                 If less than 0, it will be set to 0.
+     */
+    public void setDirtyMergeDistance(int distance) {
+        dirtyMergeDistance = Math.max(distance, 0);
+    }
+
+    /**
+     * This method gets the distance under which dirty regions are merged into one region.
+     *
+     * @return The distance in pixels of the frame buffer.
+     */
+    public int getDirtyMergeDistance() {
+        return dirtyMergeDistance;
+    }
+
+    /**
+     * This method marks a region of the frame buffer as modified, so it is drawn on the next update.
+     * It does nothing if partial presentation is disabled.
+     *
+     * @param x      The x coordinate of the region.
+     * @param y      The y coordinate of the region.
+     * @param width  The width of the region.
+     * @param height The height of the region.
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        if (!isPartialPresentationEnabled || isFullRedrawNeeded)
+            return;
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, this.width);
+        int y1 = Math.min(y + height, this.height);
+        if (x0 >= x1 || y0 >= y1)
+            return;
+        int last = lastDirtyRegion * 4;
+        if (dirtyRegionCount > 0 && x0 >= dirtyRegions[last] && y0 >= dirtyRegions[last + 1]
+                && x1 <= dirtyRegions[last + 2] && y1 <= dirtyRegions[last + 3])
+            return;
+        int best = -1;
+        int bestGrowth = Integer.MAX_VALUE;
+        for (int i = 0; i < dirtyRegionCount; i++) {
+            int r = i * 4;
+            if (x0 <= dirtyRegions[r + 2] + dirtyMergeDistance && x1 + dirtyMergeDistance >= dirtyRegions[r]
+                    && y0 <= dirtyRegions[r + 3] + dirtyMergeDistance && y1 + dirtyMergeDistance >= dirtyRegions[r + 1]) {
+                best = i;
+                break;
+            }
+            if (dirtyRegionCount == MAX_DIRTY_REGIONS) {
+                int growth = (Math.max(x1, dirtyRegions[r + 2]) - Math.min(x0, dirtyRegions[r]))
+                        * (Math.max(y1, dirtyRegions[r + 3]) - Math.min(y0, dirtyRegions[r + 1]))
+                        - (dirtyRegions[r + 2] - dirtyRegions[r]) * (dirtyRegions[r + 3] - dirtyRegions[r + 1]);
+                if (growth < bestGrowth) {
+                    bestGrowth = growth;
+                    best = i;
+                }
+            }
+        }
+        if (best == -1) {
+            best = dirtyRegionCount++;
+            dirtyRegions[best * 4] = x0;
+            dirtyRegions[best * 4 + 1] = y0;
+            dirtyRegions[best * 4 + 2] = x1;
+            dirtyRegions[best * 4 + 3] = y1;
+        } else {
+            int r = best * 4;
+            dirtyRegions[r] = Math.min(dirtyRegions[r], x0);
+            dirtyRegions[r + 1] = Math.min(dirtyRegions[r + 1], y0);
+            dirtyRegions[r + 2] = Math.max(dirtyRegions[r + 2], x1);
+            dirtyRegions[r + 3] = Math.max(dirtyRegions[r + 3], y1);
+        }
+        lastDirtyRegion = best;
+    }
+
+    /**
+     * This method marks the whole frame buffer as modified, so it is drawn on the next update.
+     */
+    public void markAllDirty() {
+        isFullRedrawNeeded = true;
+    }
+
+    /**
+     * This method merges dirty regions that grew close to each other after they were marked.
+     */
+    private void mergeDirtyRegions() {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < dirtyRegionCount * 4; i += 4) {
+                for (int j = i + 4; j < dirtyRegionCount * 4; j += 4) {
+                    if (dirtyRegions[j] > dirtyRegions[i + 2] + dirtyMergeDistance
+                            || dirtyRegions[j + 2] + dirtyMergeDistance < dirtyRegions[i]
+                            || dirtyRegions[j + 1] > dirtyRegions[i + 3] + dirtyMergeDistance
+                            || dirtyRegions[j + 3] + dirtyMergeDistance < dirtyRegions[i + 1])
+                        continue;
+                    dirtyRegions[i] = Math.min(dirtyRegions[i], dirtyRegions[j]);
+                    dirtyRegions[i + 1] = Math.min(dirtyRegions[i + 1], dirtyRegions[j + 1]);
+                    dirtyRegions[i + 2] = Math.max(dirtyRegions[i + 2], dirtyRegions[j + 2]);
+                    dirtyRegions[i + 3] = Math.max(dirtyRegions[i + 3], dirtyRegions[j + 3]);
+                    dirtyRegionCount--;
+                    System.arraycopy(dirtyRegions, dirtyRegionCount * 4, dirtyRegions, j, 4);
+                    j -= 4;
+                    merged = true;
+                }
+            }
+        }
+        lastDirtyRegion = 0;
+    }
+
     /**
      * This method sets the custom close operation of the window.
      *
@@ -247,4 +448,36 @@ public final class Window {
     public int getPixelScale() {
         return pixelScale;
     }
+
+    /**
+     * This is an inner class that extends the Canvas class.
+     * It requests a full redraw whenever the system asks the canvas to repaint,
+     * since that is when the contents of the window are lost outside the dirty regions.
+     *
+     * @author Aryan Rai
+     * @see Canvas
+     */
+    private final class WindowCanvas extends Canvas {
+        /**
+         * This is the serial version UID of the WindowCanvas class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * This is the default constructor of the WindowCanvas class.
+         */
+        private WindowCanvas() {
+        }
+
+        /**
+         * This is the paint method of the WindowCanvas class.
+         * It is called when the canvas has to be repainted.
+         *
+         * @param g Graphics object.
+         */
+        @Override
+        public void paint(Graphics g) {
+            markAllDirty();
+        }
+    }
 }
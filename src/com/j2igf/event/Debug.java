@@ -22,6 +22,7 @@ package com.j2igf.event;
 
 import com.j2igf.graphics.Renderer;
 import com.j2igf.graphics.auxiliary.FontAtlas;
+import com.j2igf.graphics.visual.Sprite;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -49,6 +50,11 @@ public final class Debug {
      */
     private static Renderer renderer;
 
+    /**
+     * This is the sprite that holds the debugRaster, so that it can be drawn with a single call.
+     */
+    private static Sprite debugSprite;
+
     /**
      * This is the raster used to render the debug information.
      */
@@ -91,7 +97,8 @@ public final class Debug {
         if (renderer == null || debugRaster != null)
             return;
         Debug.renderer = renderer;
-        Debug.debugRaster = new int[renderer.getWidth() * renderer.getHeight()];
+        Debug.debugSprite = new Sprite(renderer.getWidth(), renderer.getHeight());
+        Debug.debugRaster = debugSprite.getPixels();
     }
 
     /**
@@ -151,15 +158,14 @@ public final class Debug {
     public static void updateFrame() {
         if (debugRaster == null)
             return;
-        for (int y = 0; y < rasterHeight; y++) {
-            for (int x = 0; x < rasterWidth; x++) {
-                renderer.setPixel(x, y, debugRaster[x + y * renderer.getWidth()]);
-            }
-        }
+        renderer.pushClip(0, 0, rasterWidth, rasterHeight);
+        renderer.drawSprite(debugSprite, 0, 0);
+        renderer.popClip();
     }
 
     /**
      * This function renders debug information to the debugRaster.
+     * The raster is written directly, so its sprite is marked modified afterwards.
      *
      * @param message The message to be rendered.
      *                If this parameter is null, nothing will be rendered.
@@ -198,6 +204,7 @@ public final class Debug {
             }
             xOffset += glyphWidth;
         }
+        debugSprite.markModified();
     }
 
     /**
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics;
+
+import java.util.Arrays;
+
+/**
+ * This enum defines how the Renderer combines a color with the color already present in the target buffer.
+ * Every mode except NORMAL, REPLACE and ALPHA_TEST weights its effect by the alpha of the source color,
+ * or by the global alpha of the Renderer if one is set.
+ * Fully transparent source colors are skipped by every mode except REPLACE, even with a global alpha.
+ * Each mode implements its own pixel loops, so the mode is only checked once per span and not once per pixel.
+ *
+ * @author Aryan Rai
+ */
+public enum BlendMode {
+    /**
+     * The default mode. It follows the alpha blending settings of the Renderer.
+     */
+    NORMAL {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            int inverse = 0xff - alpha;
+            return 0xff000000 |
+                    (multiplyLanes(color & 0xff00ff, alpha) + multiplyLanes(previousColor & 0xff00ff, inverse)) |
+                    (multiplyLanes((color >> 8) & 0xff, alpha) + multiplyLanes((previousColor >> 8) & 0xff, inverse)) << 8;
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            int inverse = 0xff - alpha;
+            int redBlue = multiplyLanes(color & 0xff00ff, alpha);
+            int green = multiplyLanes((color >> 8) & 0xff, alpha);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int previousColor = pixels[i];
+                pixels[i] = 0xff000000 |
+                        (redBlue + multiplyLanes(previousColor & 0xff00ff, inverse)) |
+                        (green + multiplyLanes((previousColor >> 8) & 0xff, inverse)) << 8;
+            }
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+                int color = source[j];
+                int sourceAlpha = color >>> 24;
+                if (sourceAlpha == 0xff)
+                    pixels[i] = color;
+                else if (sourceAlpha != 0)
+                    pixels[i] = blend(pixels[i], color, alpha < 0 ? sourceAlpha : alpha);
+            }
+        }
+    },
+
+    /**
+     * The source color is added to the target color, which brightens it. Useful for glow and light effects.
+     */
+    ADDITIVE {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            return 0xff000000 |
+                    Math.min(0xff, ((previousColor >> 16) & 0xff) + multiply(alpha, (color >> 16) & 0xff)) << 16 |
+                    Math.min(0xff, ((previousColor >> 8) & 0xff) + multiply(alpha, (color >> 8) & 0xff)) << 8 |
+                    Math.min(0xff, (previousColor & 0xff) + multiply(alpha, color & 0xff));
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            int red = multiply(alpha, (color >> 16) & 0xff);
+            int green = multiply(alpha, (color >> 8) & 0xff);
+            int blue = multiply(alpha, color & 0xff);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int previousColor = pixels[i];
+                pixels[i] = 0xff000000 |
+                        Math.min(0xff, ((previousColor >> 16) & 0xff) + red) << 16 |
+                        Math.min(0xff, ((previousColor >> 8) & 0xff) + green) << 8 |
+                        Math.min(0xff, (previousColor & 0xff) + blue);
+            }
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+                int color = source[j];
+                if ((color >>> 24) != 0)
+                    pixels[i] = blend(pixels[i], color, alpha < 0 ? color >>> 24 : alpha);
+            }
+        }
+    },
+
+    /**
+     * The target color is multiplied by the source color, which darkens it. Useful for shadows and tinting.
+     */
+    MULTIPLY {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            // Multiplying by c and then blending by a is the same as multiplying by (255 - a + a * c / 255).
+            int inverse = 0xff - alpha;
+            return 0xff000000 |
+                    multiply(inverse + multiply(alpha, (color >> 16) & 0xff), (previousColor >> 16) & 0xff) << 16 |
+                    multiply(inverse + multiply(alpha, (color >> 8) & 0xff), (previousColor >> 8) & 0xff) << 8 |
+                    multiply(inverse + multiply(alpha, color & 0xff), previousColor & 0xff);
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            int red = 0xff - alpha + multiply(alpha, (color >> 16) & 0xff);
+            int green = 0xff - alpha + multiply(alpha, (color >> 8) & 0xff);
+            int blue = 0xff - alpha + multiply(alpha, color & 0xff);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int previousColor = pixels[i];
+                pixels[i] = 0xff000000 |
+                        multiply(red, (previousColor >> 16) & 0xff) << 16 |
+                        multiply(green, (previousColor >> 8) & 0xff) << 8 |
+                        multiply(blue, previousColor & 0xff);
+            }
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+                int color = source[j];
+                if ((color >>> 24) != 0)
+                    pixels[i] = blend(pixels[i], color, alpha < 0 ? color >>> 24 : alpha);
+            }
+        }
+    },
+
+    /**
+     * The inverse of the target color is multiplied by the inverse of the source color, which brightens it
+     * without saturating as quickly as ADDITIVE.
+     */
+    SCREEN {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            return 0xff000000 |
+                    screen((previousColor >> 16) & 0xff, multiply(alpha, (color >> 16) & 0xff)) << 16 |
+                    screen((previousColor >> 8) & 0xff, multiply(alpha, (color >> 8) & 0xff)) << 8 |
+                    screen(previousColor & 0xff, multiply(alpha, color & 0xff));
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            // Screening with a * c is the same as screening with c and then blending by a.
+            int red = multiply(alpha, (color >> 16) & 0xff);
+            int green = multiply(alpha, (color >> 8) & 0xff);
+            int blue = multiply(alpha, color & 0xff);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int previousColor = pixels[i];
+                pixels[i] = 0xff000000 |
+                        screen((previousColor >> 16) & 0xff, red) << 16 |
+                        screen((previousColor >> 8) & 0xff, green) << 8 |
+                        screen(previousColor & 0xff, blue);
+            }
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+                int color = source[j];
+                if ((color >>> 24) != 0)
+                    pixels[i] = blend(pixels[i], color, alpha < 0 ? color >>> 24 : alpha);
+            }
+        }
+    },
+
+    /**
+     * The source color is subtracted from the target color.
+     */
+    SUBTRACT {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            return 0xff000000 |
+                    Math.max(0, ((previousColor >> 16) & 0xff) - multiply(alpha, (color >> 16) & 0xff)) << 16 |
+                    Math.max(0, ((previousColor >> 8) & 0xff) - multiply(alpha, (color >> 8) & 0xff)) << 8 |
+                    Math.max(0, (previousColor & 0xff) - multiply(alpha, color & 0xff));
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            int red = multiply(alpha, (color >> 16) & 0xff);
+            int green = multiply(alpha, (color >> 8) & 0xff);
+            int blue = multiply(alpha, color & 0xff);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int previousColor = pixels[i];
+                pixels[i] = 0xff000000 |
+                        Math.max(0, ((previousColor >> 16) & 0xff) - red) << 16 |
+                        Math.max(0, ((previousColor >> 8) & 0xff) - green) << 8 |
+                        Math.max(0, (previousColor & 0xff) - blue);
+            }
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+                int color = source[j];
+                if ((color >>> 24) != 0)
+                    pixels[i] = blend(pixels[i], color, alpha < 0 ? color >>> 24 : alpha);
+            }
+        }
+    },
+
+    /**
+     * The source color replaces the target color, including its alpha, without any blending.
+     * Fully transparent pixels are written as well.
+     */
+    REPLACE {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            return color;
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            Arrays.fill(pixels, offset, offset + length, color);
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            System.arraycopy(source, sourceOffset, pixels, offset, length);
+        }
+    },
+
+    /**
+     * The source color is written as an opaque color if its alpha is at least ALPHA_TEST_THRESHOLD,
+     * otherwise it is discarded. The global alpha of the Renderer does not take part in the test.
+     */
+    ALPHA_TEST {
+        @Override
+        int blend(int previousColor, int color, int alpha) {
+            return (color >>> 24) >= ALPHA_TEST_THRESHOLD ? color | 0xff000000 : previousColor;
+        }
+
+        @Override
+        void fill(int[] pixels, int offset, int length, int color, int alpha) {
+            if ((color >>> 24) >= ALPHA_TEST_THRESHOLD)
+                Arrays.fill(pixels, offset, offset + length, color | 0xff000000);
+        }
+
+        @Override
+        void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha) {
+            for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+                int color = source[j];
+                if ((color >>> 24) >= ALPHA_TEST_THRESHOLD)
+                    pixels[i] = color | 0xff000000;
+            }
+        }
+    };
+
+    /**
+     * The minimum alpha value a color needs to pass the alpha test.
+     */
+    public static final int ALPHA_TEST_THRESHOLD = 0x80;
+
+    /**
+     * The lookup table for the integer blending arithmetic.
+     * The entry at index (a &lt;&lt; 8 | c) holds round(a * c / 255).
+     */
+    static final byte[] MULTIPLY_TABLE = new byte[256 * 256];
+
+    static {
+        for (int a = 0; a < 256; a++)
+            for (int c = 0; c < 256; c++)
+                MULTIPLY_TABLE[a << 8 | c] = (byte) ((a * c + 127) / 255);
+    }
+
+    /**
+     * This method multiplies two channel values and divides the result by 255.
+     *
+     * @param a the first channel value, in the range 0 to 255
+     * @param c the second channel value, in the range 0 to 255
+     * @return round(a * c / 255)
+     */
+    static int multiply(int a, int c) {
+        return MULTIPLY_TABLE[a << 8 | c] & 0xff;
+    }
+
+    /**
+     * This method multiplies two channel values at once and divides each result by 255.
+     * The channels are kept in the low bytes of the two 16-bit halves of an int, like the red and blue
+     * channels of a color masked with 0xff00ff, and every half holds its product without spilling into
+     * the other one, so a single multiplication serves both channels.
+     * The division is exact, so each half equals multiply(a, c) of its channel.
+     *
+     * @param lanes the channel values, in bits 0 to 7 and 16 to 23
+     * @param a     the value both channels are multiplied by, in the range 0 to 255
+     * @return both round(c * a / 255), in bits 0 to 7 and 16 to 23
+     */
+    static int multiplyLanes(int lanes, int a) {
+        int product = lanes * a + 0x7f007f;
+        return ((product + ((product >>> 8) & 0xff00ff) + 0x10001) >>> 8) & 0xff00ff;
+    }
+
+    /**
+     * This method is used to multiply the color channels of a color with straight alpha by its alpha.
+     *
+     * @param color the color with straight alpha
+     * @return the premultiplied color
+     */
+    public static int premultiply(int color) {
+        int alpha = color >>> 24;
+        if (alpha == 0xff)
+            return color;
+        return alpha << 24 | multiplyLanes(color & 0xff00ff, alpha) | multiplyLanes((color >> 8) & 0xff, alpha) << 8;
+    }
+
+    /**
+     * This method is used to divide the color channels of a premultiplied color by its alpha.
+     *
+     * @param color the premultiplied color
+     * @return the color with straight alpha
+     */
+    public static int unpremultiply(int color) {
+        int alpha = color >>> 24;
+        if (alpha == 0xff || alpha == 0)
+            return color;
+        int half = alpha / 2;
+        return alpha << 24 |
+                Math.min(0xff, (((color >> 16) & 0xff) * 0xff + half) / alpha) << 16 |
+                Math.min(0xff, (((color >> 8) & 0xff) * 0xff + half) / alpha) << 8 |
+                Math.min(0xff, ((color & 0xff) * 0xff + half) / alpha);
+    }
+
+    /**
+     * This method screens two channel values.
+     *
+     * @param a the first channel value, in the range 0 to 255
+     * @param b the second channel value, in the range 0 to 255
+     * @return 255 - (255 - a) * (255 - b) / 255
+     */
+    static int screen(int a, int b) {
+        return 0xff - multiply(0xff - a, 0xff - b);
+    }
+
+    /**
+     * This method blends a single color over a color of the target buffer.
+     *
+     * @param previousColor the color already present in the target buffer
+     * @param color         the color to blend
+     * @param alpha         the alpha value used to weight the blend, in the range 0 to 255
+     * @return the resulting color
+     */
+    abstract int blend(int previousColor, int color, int alpha);
+
+    /**
+     * This method blends a single color over a horizontal span of the target buffer.
+     * The span must already be clipped against the target buffer.
+     *
+     * @param pixels the target buffer
+     * @param offset the index of the first pixel of the span in the target buffer
+     * @param length the number of pixels in the span
+     * @param color  the color to blend
+     * @param alpha  the alpha value used to weight the blend, in the range 0 to 255
+     */
+    abstract void fill(int[] pixels, int offset, int length, int color, int alpha);
+
+    /**
+     * This method blends a row of source colors over a horizontal span of the target buffer.
+     * The span must already be clipped against the target buffer.
+     * Fully transparent source colors are skipped, except by REPLACE.
+     *
+     * @param pixels       the target buffer
+     * @param offset       the index of the first pixel of the span in the target buffer
+     * @param source       the source colors
+     * @param sourceOffset the index of the first source color
+     * @param length       the number of pixels in the span
+     * @param alpha        the alpha value used to weight the blend, in the range 0 to 255,
+     *                     or -1 to use the alpha of each source color
+     */
+    abstract void blendRow(int[] pixels, int offset, int[] source, int sourceOffset, int length, int alpha);
+}
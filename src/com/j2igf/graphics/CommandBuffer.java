@@ -0,0 +1,593 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics;
+
+import java.util.Arrays;
+
+/**
+ * This class stores draw calls recorded by a Renderer so that they can be rasterized later.
+ * Commands are kept in flat int arrays with a fixed stride, so recording a command does not allocate an object.
+ * The render state a command depends on is stored once in a separate state table and referenced by index.
+ * Before a recorded list is rasterized it can be optimized, which sorts it by layer, batches sprites,
+ * merges adjacent fills and drops commands that are fully covered by later ones.
+ *
+ * @author Aryan Rai
+ */
+final class CommandBuffer {
+
+    /**
+     * The number of ints used by each command.
+     */
+    static final int STRIDE = 20;
+
+    /**
+     * The slot that holds the type of the command.
+     */
+    static final int TYPE = 0;
+
+    /**
+     * The slot that holds the index of the render state of the command.
+     */
+    static final int STATE = 1;
+
+    /**
+     * The slot that holds the left edge of the bounds of the command.
+     */
+    static final int X0 = 2;
+
+    /**
+     * The slot that holds the top edge of the bounds of the command.
+     */
+    static final int Y0 = 3;
+
+    /**
+     * The slot that holds the right edge of the bounds of the command, exclusive.
+     */
+    static final int X1 = 4;
+
+    /**
+     * The slot that holds the bottom edge of the bounds of the command, exclusive.
+     */
+    static final int Y1 = 5;
+
+    /**
+     * The slot that holds the layer of the command.
+     */
+    static final int LAYER = 6;
+
+    /**
+     * The slot that holds the first argument of the command.
+     */
+    static final int ARGUMENTS = 7;
+
+    /**
+     * The number of reference slots used by each command.
+     */
+    static final int REFERENCE_STRIDE = 2;
+
+    /**
+     * The number of ints used by each render state.
+     */
+    static final int STATE_STRIDE = 8;
+
+    /**
+     * The number of previous batches a sprite command is compared against when batching by sprite.
+     */
+    private static final int BATCH_LOOKBACK = 16;
+
+    /**
+     * The number of opaque rectangles remembered while dropping covered commands.
+     */
+    private static final int OCCLUDERS = 8;
+
+    /**
+     * The command type of Renderer.clear().
+     */
+    static final int CLEAR = 0;
+
+    /**
+     * The command type of Renderer.setPixel().
+     */
+    static final int PIXEL = 1;
+
+    /**
+     * The command type of Renderer.drawLine().
+     */
+    static final int LINE = 2;
+
+    /**
+     * The command type of Renderer.drawRect().
+     */
+    static final int DRAW_RECT = 3;
+
+    /**
+     * The command type of Renderer.fillRect().
+     */
+    static final int FILL_RECT = 4;
+
+    /**
+     * The command type of Renderer.drawCircle().
+     */
+    static final int DRAW_CIRCLE = 5;
+
+    /**
+     * The command type of Renderer.fillCircle().
+     */
+    static final int FILL_CIRCLE = 6;
+
+    /**
+     * The command type of Renderer.drawTriangle().
+     */
+    static final int DRAW_TRIANGLE = 7;
+
+    /**
+     * The command type of Renderer.fillTriangle().
+     */
+    static final int FILL_TRIANGLE = 8;
+
+    /**
+     * The command type of Renderer.drawText().
+     */
+    static final int TEXT = 9;
+
+    /**
+     * The command type of Renderer.drawSprite().
+     */
+    static final int SPRITE = 10;
+
+    /**
+     * The command type of Renderer.drawSpriteTransformed().
+     */
+    static final int SPRITE_TRANSFORMED = 11;
+
+    /**
+     * The command type of Renderer.fillPolygon().
+     */
+    static final int FILL_POLYGON = 12;
+
+    /**
+     * The command type of Renderer.fillEllipse().
+     */
+    static final int FILL_ELLIPSE = 13;
+
+    /**
+     * The command type of Renderer.drawNineSlice().
+     */
+    static final int NINE_SLICE = 14;
+
+    /**
+     * The command type of the sub-rectangle overloads of Renderer.drawSprite().
+     */
+    static final int SPRITE_REGION = 15;
+
+    /**
+     * The recorded commands, STRIDE ints per command.
+     */
+    int[] commands;
+
+    /**
+     * The objects referenced by the recorded commands, REFERENCE_STRIDE slots per command.
+     */
+    Object[] references;
+
+    /**
+     * The number of recorded commands.
+     */
+    int size;
+
+    /**
+     * The recorded render states, STATE_STRIDE ints per state.
+     */
+    int[] states;
+
+    /**
+     * The number of recorded render states.
+     */
+    int stateCount;
+
+    /**
+     * The vertex data of the recorded commands that need more values than a command can hold.
+     */
+    int[] data;
+
+    /**
+     * The number of used values in data.
+     */
+    int dataSize;
+
+    /**
+     * The flag to check if the recorded commands were already optimized and rasterized once.
+     */
+    boolean isRetained;
+
+    /**
+     * The commands in their optimized order, swapped with commands after optimization.
+     */
+    private int[] sortedCommands;
+
+    /**
+     * The references in their optimized order, swapped with references after optimization.
+     */
+    private Object[] sortedReferences;
+
+    /**
+     * The sort keys of the commands, the layer in the high half and the index in the low half.
+     */
+    private long[] keys;
+
+    /**
+     * The index of the next command of the same batch, or -1.
+     */
+    private int[] next;
+
+    /**
+     * The first command of each batch.
+     */
+    private int[] batchHead;
+
+    /**
+     * The last command of each batch.
+     */
+    private int[] batchTail;
+
+    /**
+     * The bounds of each batch, four values per batch.
+     */
+    private int[] batchBounds;
+
+    /**
+     * The opaque rectangles remembered while dropping covered commands, four values per rectangle.
+     */
+    private final int[] occluders;
+
+    /**
+     * This is the constructor of the CommandBuffer class.
+     */
+    CommandBuffer() {
+        this.commands = new int[STRIDE * 256];
+        this.references = new Object[REFERENCE_STRIDE * 256];
+        this.states = new int[STATE_STRIDE * 16];
+        this.data = new int[256];
+        this.occluders = new int[OCCLUDERS * 4];
+        this.size = 0;
+        this.stateCount = 0;
+        this.dataSize = 0;
+    }
+
+    /**
+     * This method records a render state that the following commands will refer to.
+     *
+     * @param blendMode        the ordinal of the blend mode
+     * @param flags            the alpha blending flags of the renderer
+     * @param globalAlpha      the raw bits of the floating-point global alpha
+     * @param globalAlphaFixed the fixed-point global alpha
+     * @param clipX0           the left edge of the clip rectangle
+     * @param clipY0           the top edge of the clip rectangle
+     * @param clipX1           the right edge of the clip rectangle, exclusive
+     * @param clipY1           the bottom edge of the clip rectangle, exclusive
+     */
+    void addState(int blendMode, int flags, int globalAlpha, int globalAlphaFixed,
+                  int clipX0, int clipY0, int clipX1, int clipY1) {
+        if ((stateCount + 1) * STATE_STRIDE > states.length)
+            states = Arrays.copyOf(states, states.length * 2);
+        int base = stateCount * STATE_STRIDE;
+        states[base] = blendMode;
+        states[base + 1] = flags;
+        states[base + 2] = globalAlpha;
+        states[base + 3] = globalAlphaFixed;
+        states[base + 4] = clipX0;
+        states[base + 5] = clipY0;
+        states[base + 6] = clipX1;
+        states[base + 7] = clipY1;
+        stateCount++;
+    }
+
+    /**
+     * This method records a command that uses the last recorded render state.
+     * The arguments of the command are written by the caller, starting at the returned index plus ARGUMENTS.
+     *
+     * @param type      the type of the command
+     * @param reference the object the command refers to, or null
+     * @param layer     the layer of the command
+     * @param x0        the left edge of the bounds of the command
+     * @param y0        the top edge of the bounds of the command
+     * @param x1        the right edge of the bounds of the command, exclusive
+     * @param y1        the bottom edge of the bounds of the command, exclusive
+     * @return the index of the first slot of the command
+     */
+    int add(int type, Object reference, int layer, int x0, int y0, int x1, int y1) {
+        if ((size + 1) * STRIDE > commands.length) {
+            commands = Arrays.copyOf(commands, commands.length * 2);
+            references = Arrays.copyOf(references, references.length * 2);
+        }
+        int base = size * STRIDE;
+        commands[base + TYPE] = type;
+        commands[base + STATE] = stateCount - 1;
+        commands[base + X0] = x0;
+        commands[base + Y0] = y0;
+        commands[base + X1] = x1;
+        commands[base + Y1] = y1;
+        commands[base + LAYER] = layer;
+        references[size * REFERENCE_STRIDE] = reference;
+        references[size * REFERENCE_STRIDE + 1] = null;
+        size++;
+        return base;
+    }
+
+    /**
+     * This method copies the vertices of a polygon into the vertex data, all x coordinates followed by
+     * all y coordinates, so that the caller may reuse its arrays after recording.
+     *
+     * @param xs the x coordinates of the vertices
+     * @param ys the y coordinates of the vertices
+     * @param n  the number of vertices
+     * @return the offset of the first x coordinate in data
+     */
+    int addData(int[] xs, int[] ys, int n) {
+        if (dataSize + 2 * n > data.length)
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + 2 * n));
+        int offset = dataSize;
+        System.arraycopy(xs, 0, data, offset, n);
+        System.arraycopy(ys, 0, data, offset + n, n);
+        dataSize += 2 * n;
+        return offset;
+    }
+
+    /**
+     * This method removes all recorded commands and render states.
+     */
+    void clear() {
+        Arrays.fill(references, 0, size * REFERENCE_STRIDE, null);
+        size = 0;
+        stateCount = 0;
+        dataSize = 0;
+        isRetained = false;
+    }
+
+    /**
+     * This method checks if no commands are recorded.
+     *
+     * @return true if no commands are recorded, false otherwise
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * This method is used to reorder and shrink the recorded commands without changing the rasterized result.
+     * Commands are stably sorted by layer, and within a layer sprite commands are moved next to earlier commands
+     * of the same sprite whenever no overlapping command lies in between.
+     * Adjacent fills of the same color and state are merged, and commands fully covered by a later opaque
+     * clear or fill are dropped.
+     */
+    void optimize() {
+        if (size < 2)
+            return;
+        if (sortedCommands == null || sortedCommands.length < commands.length) {
+            sortedCommands = new int[commands.length];
+            sortedReferences = new Object[references.length];
+            keys = new long[commands.length / STRIDE];
+            next = new int[commands.length / STRIDE];
+            batchHead = new int[commands.length / STRIDE];
+            batchTail = new int[commands.length / STRIDE];
+            batchBounds = new int[commands.length / STRIDE * 4];
+        }
+        for (int i = 0; i < size; i++)
+            keys[i] = ((long) commands[i * STRIDE + LAYER] << 32) | i;
+        Arrays.sort(keys, 0, size);
+
+        int batchCount = 0;
+        int layerStart = 0;
+        for (int k = 0; k < size; k++) {
+            int i = (int) keys[k];
+            int base = i * STRIDE;
+            if (k > 0 && commands[base + LAYER] != commands[(int) keys[k - 1] * STRIDE + LAYER])
+                layerStart = batchCount;
+            next[i] = -1;
+            Object key = getSprite(i);
+            int target = -1;
+            if (key != null) {
+                for (int b = batchCount - 1; b >= Math.max(layerStart, batchCount - BATCH_LOOKBACK); b--) {
+                    if (getSprite(batchHead[b]) == key) {
+                        target = b;
+                        break;
+                    }
+                    if (overlaps(base, b))
+                        break;
+                }
+            }
+            if (target == -1) {
+                target = batchCount++;
+                batchHead[target] = i;
+                batchBounds[target * 4] = commands[base + X0];
+                batchBounds[target * 4 + 1] = commands[base + Y0];
+                batchBounds[target * 4 + 2] = commands[base + X1];
+                batchBounds[target * 4 + 3] = commands[base + Y1];
+            } else {
+                next[batchTail[target]] = i;
+                batchBounds[target * 4] = Math.min(batchBounds[target * 4], commands[base + X0]);
+                batchBounds[target * 4 + 1] = Math.min(batchBounds[target * 4 + 1], commands[base + Y0]);
+                batchBounds[target * 4 + 2] = Math.max(batchBounds[target * 4 + 2], commands[base + X1]);
+                batchBounds[target * 4 + 3] = Math.max(batchBounds[target * 4 + 3], commands[base + Y1]);
+            }
+            batchTail[target] = i;
+        }
+
+        int count = 0;
+        for (int b = 0; b < batchCount; b++) {
+            for (int i = batchHead[b]; i != -1; i = next[i]) {
+                if (count > 0 && mergeFill((count - 1) * STRIDE, i * STRIDE))
+                    continue;
+                System.arraycopy(commands, i * STRIDE, sortedCommands, count * STRIDE, STRIDE);
+                sortedReferences[count * REFERENCE_STRIDE] = references[i * REFERENCE_STRIDE];
+                sortedReferences[count * REFERENCE_STRIDE + 1] = references[i * REFERENCE_STRIDE + 1];
+                count++;
+            }
+        }
+        Arrays.fill(references, 0, size * REFERENCE_STRIDE, null);
+        int[] swapCommands = commands;
+        commands = sortedCommands;
+        sortedCommands = swapCommands;
+        Object[] swapReferences = references;
+        references = sortedReferences;
+        sortedReferences = swapReferences;
+        size = count;
+
+        removeCovered();
+    }
+
+    /**
+     * This method is used to get the sprite a command draws.
+     *
+     * @param index the index of the command
+     * @return the sprite of a sprite command, or null for every other command
+     */
+    private Object getSprite(int index) {
+        int type = commands[index * STRIDE + TYPE];
+        return type == SPRITE || type == SPRITE_TRANSFORMED ? references[index * REFERENCE_STRIDE] : null;
+    }
+
+    /**
+     * This method is used to check if a command overlaps the bounds of a batch.
+     *
+     * @param base  the index of the first slot of the command
+     * @param batch the index of the batch
+     * @return true if the bounds intersect, false otherwise
+     */
+    private boolean overlaps(int base, int batch) {
+        return commands[base + X0] < batchBounds[batch * 4 + 2] && commands[base + X1] > batchBounds[batch * 4]
+                && commands[base + Y0] < batchBounds[batch * 4 + 3] && commands[base + Y1] > batchBounds[batch * 4 + 1];
+    }
+
+    /**
+     * This method is used to merge a fill into the previously emitted fill when together they form one rectangle.
+     * Both fills must use the same render state, layer and color.
+     *
+     * @param previous the index of the first slot of the previously emitted command in sortedCommands
+     * @param base     the index of the first slot of the command in commands
+     * @return true if the command was merged, false otherwise
+     */
+    private boolean mergeFill(int previous, int base) {
+        int[] out = sortedCommands;
+        if (out[previous + TYPE] != FILL_RECT || commands[base + TYPE] != FILL_RECT
+                || out[previous + STATE] != commands[base + STATE] || out[previous + LAYER] != commands[base + LAYER])
+            return false;
+        int p = previous + ARGUMENTS;
+        int a = base + ARGUMENTS;
+        if (out[p + 4] != commands[a + 4])
+            return false;
+        if (out[p] == commands[a] && out[p + 2] == commands[a + 2]) {
+            if (out[p + 1] + out[p + 3] + 1 == commands[a + 1]) {
+                out[p + 3] += commands[a + 3] + 1;
+            } else if (commands[a + 1] + commands[a + 3] + 1 == out[p + 1]) {
+                out[p + 1] = commands[a + 1];
+                out[p + 3] += commands[a + 3] + 1;
+            } else
+                return false;
+        } else if (out[p + 1] == commands[a + 1] && out[p + 3] == commands[a + 3]) {
+            if (out[p] + out[p + 2] + 1 == commands[a]) {
+                out[p + 2] += commands[a + 2] + 1;
+            } else if (commands[a] + commands[a + 2] + 1 == out[p]) {
+                out[p] = commands[a];
+                out[p + 2] += commands[a + 2] + 1;
+            } else
+                return false;
+        } else
+            return false;
+        out[previous + X0] = Math.min(out[previous + X0], commands[base + X0]);
+        out[previous + Y0] = Math.min(out[previous + Y0], commands[base + Y0]);
+        out[previous + X1] = Math.max(out[previous + X1], commands[base + X1]);
+        out[previous + Y1] = Math.max(out[previous + Y1], commands[base + Y1]);
+        return true;
+    }
+
+    /**
+     * This method is used to drop the commands whose bounds are fully covered by a later opaque clear or fill.
+     * Only the most recent opaque rectangles are remembered, so some covered commands may be kept.
+     */
+    private void removeCovered() {
+        int occluderCount = 0;
+        int oldest = 0;
+        int removed = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int base = i * STRIDE;
+            boolean covered = false;
+            for (int o = 0; o < occluderCount * 4; o += 4) {
+                if (commands[base + X0] >= occluders[o] && commands[base + Y0] >= occluders[o + 1]
+                        && commands[base + X1] <= occluders[o + 2] && commands[base + Y1] <= occluders[o + 3]) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (covered) {
+                commands[base + TYPE] = -1;
+                removed++;
+            } else if (isOpaque(base)) {
+                int o;
+                if (occluderCount < OCCLUDERS) {
+                    o = occluderCount++ * 4;
+                } else {
+                    o = oldest * 4;
+                    oldest = (oldest + 1) % OCCLUDERS;
+                }
+                occluders[o] = commands[base + X0];
+                occluders[o + 1] = commands[base + Y0];
+                occluders[o + 2] = commands[base + X1];
+                occluders[o + 3] = commands[base + Y1];
+            }
+        }
+        if (removed == 0)
+            return;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (commands[i * STRIDE + TYPE] == -1)
+                continue;
+            if (count != i) {
+                System.arraycopy(commands, i * STRIDE, commands, count * STRIDE, STRIDE);
+                references[count * REFERENCE_STRIDE] = references[i * REFERENCE_STRIDE];
+                references[count * REFERENCE_STRIDE + 1] = references[i * REFERENCE_STRIDE + 1];
+            }
+            count++;
+        }
+        Arrays.fill(references, count * REFERENCE_STRIDE, size * REFERENCE_STRIDE, null);
+        size = count;
+    }
+
+    /**
+     * This method is used to check if a command overwrites every pixel inside its bounds,
+     * regardless of what was drawn there before.
+     *
+     * @param base the index of the first slot of the command
+     * @return true if the command is an opaque clear or fill, false otherwise
+     */
+    private boolean isOpaque(int base) {
+        if (commands[base + TYPE] == CLEAR)
+            return true;
+        if (commands[base + TYPE] != FILL_RECT)
+            return false;
+        int stateBase = commands[base + STATE] * STATE_STRIDE;
+        int alpha = commands[base + ARGUMENTS + 4] >>> 24;
+        if (states[stateBase] == BlendMode.REPLACE.ordinal())
+            return true;
+        return states[stateBase] == BlendMode.NORMAL.ordinal() && alpha != 0
+                && ((states[stateBase + 1] & 1) == 0 || alpha == 0xff);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics;
+
+import java.util.Arrays;
+
+/**
+ * This class computes how much of every pixel of a row is covered by a polygon, used by the Renderer
+ * to fill polygons with anti-aliased edges.
+ * Each edge adds the signed area it sweeps over a pixel to that pixel and the height it crosses to the pixel
+ * after it, so the running sum of a row gives the winding of every pixel weighted by its exact coverage.
+ * Like the EdgeTable, it keeps its edges in flat arrays that are reused between polygons.
+ *
+ * @author Aryan Rai
+ */
+final class CoverageTable {
+
+    /**
+     * The number of values used by each edge.
+     */
+    private static final int STRIDE = 5;
+
+    /**
+     * The slot that holds the x coordinate of the upper end of the edge.
+     */
+    private static final int X = 0;
+
+    /**
+     * The slot that holds the y coordinate of the upper end of the edge.
+     */
+    private static final int TOP = 1;
+
+    /**
+     * The slot that holds the y coordinate of the lower end of the edge.
+     */
+    private static final int BOTTOM = 2;
+
+    /**
+     * The slot that holds the change of x per unit of y.
+     */
+    private static final int SLOPE = 3;
+
+    /**
+     * The slot that holds the direction of the edge, 1 if it points down and -1 if it points up.
+     */
+    private static final int WINDING = 4;
+
+    /**
+     * The edges of the polygon, STRIDE values per edge, with pixel centers at half coordinates.
+     * Horizontal edges are left out.
+     */
+    private float[] edges;
+
+    /**
+     * The number of edges of the polygon.
+     */
+    private int edgeCount;
+
+    /**
+     * The edges sorted by their first row, the row in the high half and the index in the low half.
+     */
+    private long[] order;
+
+    /**
+     * The index of the next edge in order that is not yet active.
+     */
+    private int nextEdge;
+
+    /**
+     * The edges crossing the current row.
+     */
+    private int[] active;
+
+    /**
+     * The number of edges crossing the current row.
+     */
+    private int activeCount;
+
+    /**
+     * The coverage accumulated for the current row, starting at the first scanned column.
+     */
+    private float[] cells;
+
+    /**
+     * The current row.
+     */
+    private int row;
+
+    /**
+     * The first scanned column.
+     */
+    private int columnX0;
+
+    /**
+     * The column after the last scanned column.
+     */
+    private int columnX1;
+
+    /**
+     * The first column the polygon touches.
+     */
+    private int left;
+
+    /**
+     * The column after the last column the polygon touches.
+     */
+    private int right;
+
+    /**
+     * The first row the polygon touches.
+     */
+    private int top;
+
+    /**
+     * The row after the last row the polygon touches.
+     */
+    private int bottom;
+
+    /**
+     * This is the constructor of the CoverageTable class.
+     */
+    CoverageTable() {
+        this.edges = new float[STRIDE * 16];
+        this.order = new long[16];
+        this.active = new int[16];
+        this.cells = new float[64];
+    }
+
+    /**
+     * This method is used to build the edges of a closed polygon.
+     * The coordinates are read from xs starting at xOffset and from ys starting at yOffset,
+     * and every vertex is taken to be the center of the pixel it names.
+     *
+     * @param xs      the array holding the x coordinates of the vertices
+     * @param xOffset the index of the first x coordinate
+     * @param ys      the array holding the y coordinates of the vertices
+     * @param yOffset the index of the first y coordinate
+     * @param n       the number of vertices
+     */
+    void set(int[] xs, int xOffset, int[] ys, int yOffset, int n) {
+        if (n > order.length) {
+            edges = new float[STRIDE * n];
+            order = new long[n];
+            active = new int[n];
+        }
+        edgeCount = 0;
+        left = top = Integer.MAX_VALUE;
+        right = bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int x0 = xs[xOffset + i], y0 = ys[yOffset + i];
+            int j = i + 1 == n ? 0 : i + 1;
+            int x1 = xs[xOffset + j], y1 = ys[yOffset + j];
+            left = Math.min(left, x0);
+            right = Math.max(right, x0 + 1);
+            top = Math.min(top, y0);
+            bottom = Math.max(bottom, y0 + 1);
+            if (y0 == y1)
+                continue;
+            int winding = 1;
+            if (y0 > y1) {
+                x0 = x0 ^ x1 ^ (x1 = x0);
+                y0 = y0 ^ y1 ^ (y1 = y0);
+                winding = -1;
+            }
+            int base = edgeCount * STRIDE;
+            edges[base + X] = x0 + 0.5f;
+            edges[base + TOP] = y0 + 0.5f;
+            edges[base + BOTTOM] = y1 + 0.5f;
+            edges[base + SLOPE] = (float) ((double) (x1 - x0) / (y1 - y0));
+            edges[base + WINDING] = winding;
+            order[edgeCount] = (long) y0 << 32 | edgeCount;
+            edgeCount++;
+        }
+        Arrays.sort(order, 0, edgeCount);
+    }
+
+    /**
+     * This method is used to start scanning the polygon at a row, limited to a range of columns.
+     * Edges left of the range still count towards the winding of the pixels inside it.
+     *
+     * @param y  the first row to scan
+     * @param x0 the first column to scan
+     * @param x1 the column after the last column to scan
+     */
+    void start(int y, int x0, int x1) {
+        row = y;
+        columnX0 = x0;
+        columnX1 = x1;
+        if (x1 - x0 + 2 > cells.length)
+            cells = new float[x1 - x0 + 2];
+        nextEdge = 0;
+        activeCount = 0;
+        activate();
+    }
+
+    /**
+     * This method is used to move to the next row.
+     */
+    void next() {
+        row++;
+        int count = 0;
+        for (int i = 0; i < activeCount; i++)
+            if (edges[active[i] * STRIDE + BOTTOM] > row)
+                active[count++] = active[i];
+        activeCount = count;
+        activate();
+    }
+
+    /**
+     * This method is used to add the edges that reach into the current row.
+     */
+    private void activate() {
+        while (nextEdge < edgeCount && (int) (order[nextEdge] >> 32) <= row) {
+            int edge = (int) order[nextEdge++];
+            if (edges[edge * STRIDE + BOTTOM] > row)
+                active[activeCount++] = edge;
+        }
+    }
+
+    /**
+     * This method is used to compute the accumulated coverage of the current row.
+     * The running sum of the returned cells from the first one is the signed coverage of each pixel,
+     * whose magnitude is one for a pixel that is completely inside the polygon once.
+     *
+     * @return the cells of the current row, the first one belonging to the first scanned column
+     */
+    float[] accumulate() {
+        int width = columnX1 - columnX0;
+        Arrays.fill(cells, 0, width + 2, 0);
+        for (int i = 0; i < activeCount; i++) {
+            int base = active[i] * STRIDE;
+            float y0 = Math.max(edges[base + TOP], row);
+            float y1 = Math.min(edges[base + BOTTOM], row + 1);
+            if (y1 <= y0)
+                continue;
+            float x = edges[base + X] - columnX0;
+            float slope = edges[base + SLOPE];
+            float xa = x + (y0 - edges[base + TOP]) * slope;
+            float xb = x + (y1 - edges[base + TOP]) * slope;
+            addSegment(Math.min(xa, xb), Math.max(xa, xb), (y1 - y0) * edges[base + WINDING], width);
+        }
+        return cells;
+    }
+
+    /**
+     * This method is used to add a segment of an edge within the current row to the cells.
+     * The parts of the segment left of the scanned columns are moved onto their left border,
+     * and the parts right of them are dropped because they do not affect any scanned pixel.
+     *
+     * @param x0     the smaller x coordinate of the segment, relative to the first scanned column
+     * @param x1     the larger x coordinate of the segment, relative to the first scanned column
+     * @param height the height of the segment, negative if the edge points up
+     * @param width  the number of scanned columns
+     */
+    private void addSegment(float x0, float x1, float height, int width) {
+        if (x0 >= width)
+            return;
+        if (x1 <= 0) {
+            cells[0] += height;
+            return;
+        }
+        float length = x1 - x0;
+        if (x0 < 0) {
+            cells[0] += height * (-x0 / length);
+            height -= height * (-x0 / length);
+            x0 = 0;
+        }
+        if (x1 > width) {
+            height -= height * ((x1 - width) / (x1 - x0));
+            x1 = width;
+        }
+        int x0Floor = (int) x0;
+        int x1Ceil = (int) Math.ceil(x1);
+        if (x1Ceil <= x0Floor + 1) {
+            // The segment stays within one pixel, which gets the part of the height left of its middle.
+            float middle = 0.5f * (x0 + x1) - x0Floor;
+            cells[x0Floor] += height - height * middle;
+            cells[x0Floor + 1] += height * middle;
+            return;
+        }
+        // The segment crosses several pixels, each getting the area of the trapezoid it cuts off.
+        float scale = 1 / (x1 - x0);
+        float x0Fraction = x0 - x0Floor;
+        float firstArea = 0.5f * scale * (1 - x0Fraction) * (1 - x0Fraction);
+        float x1Fraction = x1 - x1Ceil + 1;
+        float lastArea = 0.5f * scale * x1Fraction * x1Fraction;
+        cells[x0Floor] += height * firstArea;
+        if (x1Ceil == x0Floor + 2) {
+            cells[x0Floor + 1] += height * (1 - firstArea - lastArea);
+        } else {
+            float area = scale * (1.5f - x0Fraction);
+            cells[x0Floor + 1] += height * (area - firstArea);
+            for (int x = x0Floor + 2; x < x1Ceil - 1; x++)
+                cells[x] += height * scale;
+            area += (x1Ceil - x0Floor - 3) * scale;
+            cells[x1Ceil - 1] += height * (1 - area - lastArea);
+        }
+        cells[x1Ceil] += height * lastArea;
+    }
+
+    /**
+     * This method returns the first column the polygon touches.
+     *
+     * @return the left edge of the bounds of the polygon
+     */
+    int getLeft() {
+        return left;
+    }
+
+    /**
+     * This method returns the column after the last column the polygon touches.
+     *
+     * @return the right edge of the bounds of the polygon, exclusive
+     */
+    int getRight() {
+        return right;
+    }
+
+    /**
+     * This method returns the first row the polygon touches.
+     *
+     * @return the top edge of the bounds of the polygon
+     */
+    int getTop() {
+        return top;
+    }
+
+    /**
+     * This method returns the row after the last row the polygon touches.
+     *
+     * @return the bottom edge of the bounds of the polygon, exclusive
+     */
+    int getBottom() {
+        return bottom;
+    }
+}
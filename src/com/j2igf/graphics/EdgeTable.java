@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics;
+
+import java.util.Arrays;
+
+/**
+ * This class is the active edge table used by the Renderer to fill polygons one scanline at a time.
+ * Edges are kept in flat long arrays with a fixed stride and are reused between polygons,
+ * so filling a polygon does not allocate once the arrays are large enough.
+ * The x coordinate of every active edge is stepped exactly from row to row in integer arithmetic
+ * and is rounded up, so a pixel is inside a span if it lies on or to the right of its left crossing
+ * and strictly to the left of its right crossing.
+ *
+ * @author Aryan Rai
+ */
+final class EdgeTable {
+
+    /**
+     * The number of values used by each edge.
+     */
+    private static final int STRIDE = 8;
+
+    /**
+     * The slot that holds the first row of the edge.
+     */
+    private static final int TOP = 0;
+
+    /**
+     * The slot that holds the row after the last row of the edge.
+     */
+    private static final int BOTTOM = 1;
+
+    /**
+     * The slot that holds the x coordinate of the upper end of the edge.
+     */
+    private static final int X = 2;
+
+    /**
+     * The slot that holds the direction of the edge, 1 if it points down and -1 if it points up.
+     */
+    private static final int WINDING = 3;
+
+    /**
+     * The slot that holds the whole part of the change of x per row.
+     */
+    private static final int STEP = 4;
+
+    /**
+     * The slot that holds the remaining part of the change of x per row, in units of one over the edge height.
+     */
+    private static final int CARRY = 5;
+
+    /**
+     * The slot that holds the x coordinate of the edge on the current row, rounded up.
+     */
+    private static final int QUOTIENT = 6;
+
+    /**
+     * The slot that holds the remainder of the x coordinate of the edge on the current row.
+     */
+    private static final int REMAINDER = 7;
+
+    /**
+     * The edges of the polygon, STRIDE values per edge. Horizontal edges are left out.
+     */
+    private long[] edges;
+
+    /**
+     * The number of edges of the polygon.
+     */
+    private int edgeCount;
+
+    /**
+     * The edges sorted by their first row, the row in the high half and the index in the low half.
+     */
+    private long[] order;
+
+    /**
+     * The index of the next edge in order that is not yet active.
+     */
+    private int nextEdge;
+
+    /**
+     * The edges crossing the current row, sorted by their x coordinate.
+     */
+    private int[] active;
+
+    /**
+     * The number of edges crossing the current row.
+     */
+    private int activeCount;
+
+    /**
+     * The current row.
+     */
+    private int row;
+
+    /**
+     * The smallest x coordinate of the polygon.
+     */
+    private int left;
+
+    /**
+     * The largest x coordinate of the polygon.
+     */
+    private int right;
+
+    /**
+     * The smallest y coordinate of the polygon.
+     */
+    private int top;
+
+    /**
+     * The largest y coordinate of the polygon.
+     */
+    private int bottom;
+
+    /**
+     * This is the constructor of the EdgeTable class.
+     */
+    EdgeTable() {
+        this.edges = new long[STRIDE * 16];
+        this.order = new long[16];
+        this.active = new int[16];
+    }
+
+    /**
+     * This method is used to build the edges of a closed polygon.
+     * The coordinates are read from xs starting at xOffset and from ys starting at yOffset.
+     *
+     * @param xs      the array holding the x coordinates of the vertices
+     * @param xOffset the index of the first x coordinate
+     * @param ys      the array holding the y coordinates of the vertices
+     * @param yOffset the index of the first y coordinate
+     * @param n       the number of vertices
+     */
+    void set(int[] xs, int xOffset, int[] ys, int yOffset, int n) {
+        if (n > order.length) {
+            edges = new long[STRIDE * n];
+            order = new long[n];
+            active = new int[n];
+        }
+        edgeCount = 0;
+        left = top = Integer.MAX_VALUE;
+        right = bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int x0 = xs[xOffset + i], y0 = ys[yOffset + i];
+            int j = i + 1 == n ? 0 : i + 1;
+            int x1 = xs[xOffset + j], y1 = ys[yOffset + j];
+            left = Math.min(left, x0);
+            right = Math.max(right, x0);
+            top = Math.min(top, y0);
+            bottom = Math.max(bottom, y0);
+            if (y0 == y1)
+                continue;
+            int winding = 1;
+            if (y0 > y1) {
+                x0 = x0 ^ x1 ^ (x1 = x0);
+                y0 = y0 ^ y1 ^ (y1 = y0);
+                winding = -1;
+            }
+            long dx = (long) x1 - x0, dy = (long) y1 - y0;
+            long step = Math.floorDiv(dx, dy);
+            int base = edgeCount * STRIDE;
+            edges[base + TOP] = y0;
+            edges[base + BOTTOM] = y1;
+            edges[base + X] = x0;
+            edges[base + WINDING] = winding;
+            edges[base + STEP] = step;
+            edges[base + CARRY] = dx - step * dy;
+            order[edgeCount] = (long) y0 << 32 | edgeCount;
+            edgeCount++;
+        }
+        Arrays.sort(order, 0, edgeCount);
+    }
+
+    /**
+     * This method is used to start scanning the polygon at a row.
+     * Edges that end above the row are skipped.
+     *
+     * @param y the first row to scan
+     */
+    void start(int y) {
+        row = y;
+        nextEdge = 0;
+        activeCount = 0;
+        activate();
+    }
+
+    /**
+     * This method is used to move to the next row.
+     * Edges that end on the new row are removed and edges that start on it are added.
+     */
+    void next() {
+        row++;
+        int count = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int base = active[i] * STRIDE;
+            if (edges[base + BOTTOM] <= row)
+                continue;
+            long divisor = edges[base + BOTTOM] - edges[base + TOP];
+            long remainder = edges[base + REMAINDER] + edges[base + CARRY];
+            long carry = (divisor - 1 - remainder) >> 63;
+            edges[base + QUOTIENT] += edges[base + STEP] - carry;
+            edges[base + REMAINDER] = remainder - (divisor & carry);
+            active[count++] = active[i];
+        }
+        activeCount = count;
+        activate();
+    }
+
+    /**
+     * This method is used to add the edges that start on or above the current row,
+     * positioning each of them on the current row, and to sort the active edges by x coordinate.
+     */
+    private void activate() {
+        while (nextEdge < edgeCount && (int) (order[nextEdge] >> 32) <= row) {
+            int edge = (int) order[nextEdge++];
+            int base = edge * STRIDE;
+            if (edges[base + BOTTOM] <= row)
+                continue;
+            long divisor = edges[base + BOTTOM] - edges[base + TOP];
+            long dx = edges[base + STEP] * divisor + edges[base + CARRY];
+            long numerator = edges[base + X] * divisor + (row - edges[base + TOP]) * dx + divisor - 1;
+            long quotient = Math.floorDiv(numerator, divisor);
+            edges[base + QUOTIENT] = quotient;
+            edges[base + REMAINDER] = numerator - quotient * divisor;
+            active[activeCount++] = edge;
+        }
+        // The order of the edges rarely changes between rows, so an insertion sort is close to linear.
+        for (int i = 1; i < activeCount; i++) {
+            int edge = active[i];
+            long x = edges[edge * STRIDE + QUOTIENT];
+            int j = i - 1;
+            while (j >= 0 && edges[active[j] * STRIDE + QUOTIENT] > x) {
+                active[j + 1] = active[j];
+                j--;
+            }
+            active[j + 1] = edge;
+        }
+    }
+
+    /**
+     * This method returns the number of edges crossing the current row.
+     *
+     * @return the number of active edges
+     */
+    int getCount() {
+        return activeCount;
+    }
+
+    /**
+     * This method returns the x coordinate where an active edge crosses the current row, rounded up.
+     *
+     * @param index the index of the edge among the active edges, from left to right
+     * @return the first pixel column on or to the right of the crossing
+     */
+    long getX(int index) {
+        return edges[active[index] * STRIDE + QUOTIENT];
+    }
+
+    /**
+     * This method returns the direction of an active edge.
+     *
+     * @param index the index of the edge among the active edges, from left to right
+     * @return 1 if the edge points down, -1 if it points up
+     */
+    int getWinding(int index) {
+        return (int) edges[active[index] * STRIDE + WINDING];
+    }
+
+    /**
+     * This method returns the smallest x coordinate of the polygon.
+     *
+     * @return the left edge of the bounds of the polygon
+     */
+    int getLeft() {
+        return left;
+    }
+
+    /**
+     * This method returns the largest x coordinate of the polygon.
+     *
+     * @return the right edge of the bounds of the polygon, exclusive
+     */
+    int getRight() {
+        return right;
+    }
+
+    /**
+     * This method returns the smallest y coordinate of the polygon.
+     *
+     * @return the top edge of the bounds of the polygon
+     */
+    int getTop() {
+        return top;
+    }
+
+    /**
+     * This method returns the largest y coordinate of the polygon.
+     *
+     * @return the bottom edge of the bounds of the polygon, exclusive
+     */
+    int getBottom() {
+        return bottom;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics;
+
+/**
+ * This enum defines which parts of a polygon the Renderer fills when its outline crosses itself
+ * or when it contains holes.
+ *
+ * @author Aryan Rai
+ */
+public enum FillRule {
+    /**
+     * A pixel is filled if a ray from it to infinity crosses the outline an odd number of times.
+     * Overlapping parts of a self-intersecting polygon alternate between filled and empty.
+     */
+    EVEN_ODD,
+
+    /**
+     * A pixel is filled if the outline winds around it a non-zero number of times.
+     * Overlapping parts of a self-intersecting polygon are filled unless their windings cancel out.
+     */
+    NON_ZERO
+}
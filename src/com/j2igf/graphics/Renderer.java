@@ -23,8 +23,14 @@ package com.j2igf.graphics;
 import com.j2igf.core.Window;
 import com.j2igf.event.Debug;
 import com.j2igf.graphics.auxiliary.FontAtlas;
+import com.j2igf.graphics.visual.NineSlice;
+import com.j2igf.graphics.visual.Opacity;
 import com.j2igf.graphics.visual.Sprite;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * This class is used to render graphics on the target buffer.
  *
@@ -32,11 +38,31 @@ import com.j2igf.graphics.visual.Sprite;
  */
 public final class Renderer {
 
+    /**
+     * The blend modes indexed by their ordinal, used to restore recorded render states.
+     */
+    private static final BlendMode[] BLEND_MODES = BlendMode.values();
+
+    /**
+     * The fill rules indexed by their ordinal, used to restore recorded polygons.
+     */
+    private static final FillRule[] FILL_RULES = FillRule.values();
+
     /**
      * The target buffer to render on.
      */
     private final int[] pixels;
 
+    /**
+     * The window whose frame buffer is the target buffer, told about modified regions, otherwise null.
+     */
+    private final Window window;
+
+    /**
+     * The sprite whose pixels are the target buffer, told when they are modified, otherwise null.
+     */
+    private final Sprite target;
+
     /**
      * The width of the target buffer.
      */
@@ -52,21 +78,142 @@ public final class Renderer {
      */
     private final boolean isSprite;
 
+    /**
+     * The first row of the target buffer this renderer may draw on.
+     */
+    private final int bandY0;
+
+    /**
+     * The row after the last row of the target buffer this renderer may draw on.
+     */
+    private final int bandY1;
+
     /**
      * The font atlas used to render text.
      */
     private FontAtlas fontAtlas;
 
+    /**
+     * The blend mode used to combine colors with the target buffer.
+     */
+    private BlendMode blendMode;
+
     /**
      * The global alpha value.
      */
     private float globalAlpha;
 
+    /**
+     * The global alpha value in the range 0 to 255, used by the fixed-point blending path.
+     */
+    private int globalAlphaFixed;
+
     /**
      * The flag to check if alpha is enabled.
      */
     private boolean isAlphaEnabled;
 
+    /**
+     * The flag to check if the integer fixed-point blending path is used instead of the floating-point one.
+     */
+    private boolean isFixedPointEnabled;
+
+    /**
+     * The flag to check if lines, circles and polygons are drawn with anti-aliased edges.
+     */
+    private boolean isAntiAliasingEnabled;
+
+    /**
+     * The flag to check if rotated and scaled sprites are sampled with bilinear filtering.
+     */
+    private boolean isFilteringEnabled;
+
+    /**
+     * The left edge of the clip rectangle.
+     */
+    private int clipX0;
+
+    /**
+     * The top edge of the clip rectangle.
+     */
+    private int clipY0;
+
+    /**
+     * The right edge of the clip rectangle, exclusive.
+     */
+    private int clipX1;
+
+    /**
+     * The bottom edge of the clip rectangle, exclusive.
+     */
+    private int clipY1;
+
+    /**
+     * The clip rectangles saved by pushClip(), four values per rectangle.
+     */
+    private int[] clipStack;
+
+    /**
+     * The number of clip rectangles saved on the clip stack.
+     */
+    private int clipDepth;
+
+    /**
+     * The buffer that draw calls are recorded into while deferred or parallel rendering is enabled, otherwise null.
+     */
+    private CommandBuffer commands;
+
+    /**
+     * The flag to check if deferred rendering is enabled.
+     */
+    private boolean isDeferredEnabled;
+
+    /**
+     * The flag to check if parallel rendering is enabled.
+     */
+    private boolean isParallelEnabled;
+
+    /**
+     * The layer recorded draw calls are sorted by.
+     */
+    private int layer;
+
+    /**
+     * The flag to check if the current render state has already been recorded into the command buffer.
+     */
+    private boolean isStateRecorded;
+
+    /**
+     * The renderers that rasterize the horizontal bands of the target buffer in parallel rendering.
+     */
+    private Renderer[] bands;
+
+    /**
+     * The renderer that rasterizes the whole target buffer when recorded draw calls are flushed serially.
+     */
+    private Renderer view;
+
+    /**
+     * The active edge table used to fill polygons, created on first use and reused afterwards.
+     */
+    private EdgeTable edgeTable;
+
+    /**
+     * The coverage table used to fill anti-aliased polygons, created on first use and reused afterwards.
+     */
+    private CoverageTable coverageTable;
+
+    /**
+     * The row of stretched source colors used by region blits, created on first use and grown when needed.
+     */
+    private int[] rowBuffer;
+
+    /**
+     * The source columns of the target columns of an axis-aligned scaled blit, created on first use and grown
+     * when needed.
+     */
+    private int[] columnBuffer;
+
     /**
      * This is a constructor for the Renderer class.
      * It sets the target buffer to the frame buffer of the window.
@@ -79,18 +226,30 @@ public final class Renderer {
             System.exit(-1);
         }
         this.fontAtlas = FontAtlas.DEFAULT_FONT;
+        this.blendMode = BlendMode.NORMAL;
         this.globalAlpha = -1;
+        this.globalAlphaFixed = -1;
         this.isAlphaEnabled = false;
+        this.isFixedPointEnabled = false;
+        this.isAntiAliasingEnabled = false;
+        this.isFilteringEnabled = false;
+        this.window = window;
+        this.target = null;
         this.pixels = window.getFrameBuffer();
         this.width = window.getWidth();
         this.height = window.getHeight();
         this.isSprite = false;
+        this.bandY0 = 0;
+        this.bandY1 = height;
+        this.clipX1 = width;
+        this.clipY1 = height;
+        this.clipStack = new int[16];
         Debug.logInfo("Renderer of width " + width + " and height " + height + " initialized!");
     }
 
     /**
      * This is a constructor for the Renderer class.
-     * It sets the target buffer to the pixels of the Sprite.
+     * It sets the target buffer to the pixels of the Sprite, which can not be a view of another sprite.
      *
      * @param target instance of the Sprite which this renderer will target.
      */
@@ -98,17 +257,60 @@ public final class Renderer {
         if (target == null) {
             Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
             System.exit(-1);
+        } else if (target.isView()) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite views can not be render targets!");
+            System.exit(-1);
         }
         this.fontAtlas = FontAtlas.DEFAULT_FONT;
+        this.blendMode = BlendMode.NORMAL;
         this.globalAlpha = -1;
+        this.globalAlphaFixed = -1;
         this.isAlphaEnabled = false;
+        this.isFixedPointEnabled = false;
+        this.isAntiAliasingEnabled = false;
+        this.isFilteringEnabled = false;
+        this.window = null;
+        this.target = target;
         this.pixels = target.getPixels();
         this.width = target.getWidth();
         this.height = target.getHeight();
         this.isSprite = true;
+        this.bandY0 = 0;
+        this.bandY1 = height;
+        this.clipX1 = width;
+        this.clipY1 = height;
+        this.clipStack = new int[16];
         Debug.logInfo("Sprite Renderer of width " + width + " and height " + height + " initialized!");
     }
 
+    /**
+     * This is a constructor for the Renderer class.
+     * It creates a renderer that shares the target buffer of another renderer,
+     * but never draws outside the rows of one horizontal band.
+     *
+     * @param parent the renderer whose target buffer is shared
+     * @param bandY0 the first row of the band
+     * @param bandY1 the row after the last row of the band
+     */
+    private Renderer(Renderer parent, int bandY0, int bandY1) {
+        this.fontAtlas = parent.fontAtlas;
+        this.blendMode = BlendMode.NORMAL;
+        this.globalAlpha = -1;
+        this.globalAlphaFixed = -1;
+        this.window = null;
+        this.target = null;
+        this.pixels = parent.pixels;
+        this.width = parent.width;
+        this.height = parent.height;
+        this.isSprite = parent.isSprite;
+        this.bandY0 = bandY0;
+        this.bandY1 = bandY1;
+        this.clipY0 = bandY0;
+        this.clipX1 = width;
+        this.clipY1 = bandY1;
+        this.clipStack = new int[16];
+    }
+
     /**
      * This method is used to set the font atlas.
      *
@@ -122,11 +324,37 @@ public final class Renderer {
         this.fontAtlas = fontAtlas;
     }
 
+    /**
+     * This method is used to set the blend mode.
+     * Alpha blending settings only apply to the NORMAL blend mode,
+     * every other mode always blends using the per-pixel or global alpha.
+     *
+     * @param blendMode the blend mode to use
+     */
+    public void setBlendMode(BlendMode blendMode) {
+        if (blendMode == null) {
+            Debug.logError(getClass().getSimpleName() + " -> BlendMode instance can not be null!");
+            System.exit(-1);
+        }
+        this.blendMode = blendMode;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to get the blend mode.
+     *
+     * @return the blend mode in use
+     */
+    public BlendMode getBlendMode() {
+        return blendMode;
+    }
+
     /**
      * This method is used to enable alpha blending.
      */
     public void enableAlphaBlending() {
         isAlphaEnabled = true;
+        isStateRecorded = false;
     }
 
     /**
@@ -134,11 +362,88 @@ public final class Renderer {
      */
     public void disableAlphaBlending() {
         isAlphaEnabled = false;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to blend with integer fixed-point arithmetic instead of floating-point arithmetic.
+     * The blended channels are within one unit of the floating-point result.
+     */
+    public void enableFixedPointBlending() {
+        isFixedPointEnabled = true;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to blend with floating-point arithmetic, which is the default.
+     */
+    public void disableFixedPointBlending() {
+        isFixedPointEnabled = false;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to draw lines, circles and polygons with anti-aliased edges.
+     * Edge pixels are blended with the target buffer by how much of them the shape covers,
+     * scaled by the alpha the color would get otherwise, so they blend even when alpha blending is disabled.
+     * Lines are drawn with Wu's algorithm and circles and polygons from the exact distance or area they cover.
+     */
+    public void enableAntiAliasing() {
+        isAntiAliasingEnabled = true;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to draw lines, circles and polygons with aliased edges, which is the default.
+     */
+    public void disableAntiAliasing() {
+        isAntiAliasingEnabled = false;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to check if anti-aliasing is enabled.
+     *
+     * @return true if anti-aliasing is enabled, false otherwise
+     */
+    public boolean isAntiAliasingEnabled() {
+        return isAntiAliasingEnabled;
+    }
+
+    /**
+     * This method is used to sample every rotated and scaled sprite with bilinear filtering,
+     * in addition to the sprites that enable filtering themselves.
+     */
+    public void enableFiltering() {
+        isFilteringEnabled = true;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to only filter the rotated and scaled sprites that enable filtering themselves,
+     * which is the default.
+     */
+    public void disableFiltering() {
+        isFilteringEnabled = false;
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to check if filtering is enabled for every sprite.
+     *
+     * @return true if filtering is enabled, false otherwise
+     */
+    public boolean isFilteringEnabled() {
+        return isFilteringEnabled;
     }
 
     /**
      * This method is used to set the global alpha value.
      * And use global alpha instead of per-pixel alpha.
+     * With the NORMAL blend mode, translucent pixels are blended with the global alpha in place of their own,
+     * while opaque pixels stay opaque and fully transparent pixels are skipped.
+     * The other blend modes weight every pixel that is not fully transparent by the global alpha.
+     * This is the same for sprites with straight and with premultiplied alpha.
      *
      * @param alpha the global alpha value
      */
@@ -148,6 +453,8 @@ public final class Renderer {
             System.exit(-1);
         }
         globalAlpha = alpha;
+        globalAlphaFixed = Math.round(alpha * 0xff);
+        isStateRecorded = false;
     }
 
     /**
@@ -155,311 +462,2180 @@ public final class Renderer {
      */
     public void useLocalAlpha() {
         globalAlpha = -1;
+        globalAlphaFixed = -1;
+        isStateRecorded = false;
     }
 
     /**
-     * This method is used to clear the target buffer to a specific color.
+     * This method is used to restrict rendering to a rectangle of the target buffer.
+     * The new clip rectangle is intersected with the current one, which is saved and restored by popClip().
+     * Every primitive, sprite and text is clipped against it.
      *
-     * @param color the color to which the target buffer will be cleared
+     * @param x      the x coordinate of the clip rectangle
+     * @param y      the y coordinate of the clip rectangle
+     * @param width  the width of the clip rectangle
+     * @param height the height of the clip rectangle
      */
-    public void clear(int color) {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                pixels[x + y * width] = color | (isSprite ? 0 : 0xff000000);
-            }
+    public void pushClip(int x, int y, int width, int height) {
+        if (clipDepth * 4 == clipStack.length)
+            clipStack = Arrays.copyOf(clipStack, clipStack.length * 2);
+        clipStack[clipDepth * 4] = clipX0;
+        clipStack[clipDepth * 4 + 1] = clipY0;
+        clipStack[clipDepth * 4 + 2] = clipX1;
+        clipStack[clipDepth * 4 + 3] = clipY1;
+        clipDepth++;
+        clipX0 = Math.min(Math.max(clipX0, x), clipX1);
+        clipY0 = Math.min(Math.max(clipY0, y), clipY1);
+        clipX1 = Math.max(clipX0, Math.min(clipX1, x + Math.max(width, 0)));
+        clipY1 = Math.max(clipY0, Math.min(clipY1, y + Math.max(height, 0)));
+        isStateRecorded = false;
+    }
+
+    /**
+     * This method is used to restore the clip rectangle that was active before the last call to pushClip().
+     */
+    public void popClip() {
+        if (clipDepth == 0) {
+            Debug.logError(getClass().getSimpleName() + " -> Renderer.popClip() called without a matching pushClip()!");
+            System.exit(-1);
         }
+        clipDepth--;
+        clipX0 = clipStack[clipDepth * 4];
+        clipY0 = clipStack[clipDepth * 4 + 1];
+        clipX1 = clipStack[clipDepth * 4 + 2];
+        clipY1 = clipStack[clipDepth * 4 + 3];
+        isStateRecorded = false;
     }
 
     /**
-     * This method is used to draw a pixel on the target buffer.
-     *
-     * @param x     the x coordinate of the pixel
-     * @param y     the y coordinate of the pixel
-     * @param color the color of the pixel
+     * This method is used to enable deferred rendering.
+     * While it is enabled, draw calls are only recorded into a display list, and flush() sorts it by layer,
+     * merges adjacent fills, drops covered draw calls and then rasterizes it.
+     * The flushed display list is kept until the next draw call, so replay() can rasterize it again.
+     * Sprites are read when the commands are rasterized, so they should not be modified in between.
      */
-    public void setPixel(int x, int y, int color) {
-        int alpha = (color >>> 24);
-        if (alpha == 0 || x < 0 || x >= width || y < 0 || y >= height)
+    public void enableDeferredRendering() {
+        isDeferredEnabled = true;
+        startRecording();
+    }
+
+    /**
+     * This method is used to disable deferred rendering.
+     * Any recorded draw calls are flushed first.
+     */
+    public void disableDeferredRendering() {
+        flush();
+        isDeferredEnabled = false;
+        stopRecording();
+    }
+
+    /**
+     * This method is used to enable parallel rendering.
+     * While it is enabled, draw calls are only recorded, and flush() rasterizes them on the common ForkJoinPool,
+     * with every worker drawing into its own horizontal band of the target buffer.
+     * Sprites are read when the commands are flushed, so they should not be modified in between.
+     */
+    public void enableParallelRendering() {
+        isParallelEnabled = true;
+        startRecording();
+    }
+
+    /**
+     * This method is used to disable parallel rendering.
+     * Any recorded draw calls are flushed first.
+     */
+    public void disableParallelRendering() {
+        flush();
+        isParallelEnabled = false;
+        stopRecording();
+    }
+
+    /**
+     * This method is used to create the command buffer when deferred or parallel rendering gets enabled.
+     */
+    private void startRecording() {
+        if (commands != null)
             return;
+        commands = new CommandBuffer();
+        isStateRecorded = false;
+    }
 
-        if (isAlphaEnabled && alpha < 0xff) {
-            int previousColor = pixels[x + y * width];
-            int red = (previousColor >> 16) & 0xff;
-            int green = (previousColor >> 8) & 0xff;
-            int blue = (previousColor) & 0xff;
-            if (globalAlpha == -1) {
-                float alphaF = (float) alpha / 0xff;
-                red = (int) (((1 - alphaF) * red + alphaF * ((color >> 16) & 0xff)));
-                green = (int) ((1 - alphaF) * green + alphaF * ((color >> 8) & 0xff));
-                blue = (int) ((1 - alphaF) * blue + alphaF * (color & 0xff));
-            } else {
-                red = (int) (((1 - globalAlpha) * red + globalAlpha * ((color >> 16) & 0xff)));
-                green = (int) ((1 - globalAlpha) * green + globalAlpha * ((color >> 8) & 0xff));
-                blue = (int) ((1 - globalAlpha) * blue + globalAlpha * (color & 0xff));
-            }
-            pixels[x + y * width] = 0xff000000 | red << 16 | green << 8 | blue;
-        } else
-            pixels[x + y * width] = color | 0xff000000;
+    /**
+     * This method is used to drop the command buffer once neither deferred nor parallel rendering is enabled.
+     */
+    private void stopRecording() {
+        if (isDeferredEnabled || isParallelEnabled)
+            return;
+        commands = null;
     }
 
     /**
-     * This method is used to draw a line on the target buffer.
+     * This method is used to set the layer of the following draw calls.
+     * Recorded draw calls are rasterized in order of increasing layer,
+     * and in the order they were made within a layer.
+     * Layers have no effect while draw calls are rasterized immediately.
      *
-     * @param x0    the x coordinate of the first point
-     * @param y0    the y coordinate of the first point
-     * @param x1    the x coordinate of the second point
-     * @param y1    the y coordinate of the second point
-     * @param color the color of the line
+     * @param layer the layer of the following draw calls
      */
-    public void drawLine(int x0, int y0, int x1, int y1, int color) {
-        int dx = Math.abs(x1 - x0);
-        int sx = x0 < x1 ? 1 : -1;
-        int dy = -Math.abs(y1 - y0);
-        int sy = y0 < y1 ? 1 : -1;
-        int error = dx + dy;
-
-        while (true) {
-            setPixel(x0, y0, color);
-            if (x0 == x1 && y0 == y1)
-                break;
-            int e2 = 2 * error;
-            if (e2 >= dy) {
-                if (x0 == x1)
-                    break;
-                error = error + dy;
-                x0 = x0 + sx;
-            }
-            if (e2 <= dx) {
-                if (y0 == y1)
-                    break;
-                error = error + dx;
-                y0 = y0 + sy;
-            }
-        }
+    public void setLayer(int layer) {
+        this.layer = layer;
     }
 
     /**
-     * This method is used to draw a rectangle on the target buffer.
+     * This method is used to get the layer of the following draw calls.
      *
-     * @param x           the x coordinate of the rectangle
-     * @param y           the y coordinate of the rectangle
-     * @param width       the width of the rectangle
-     * @param height      the height of the rectangle
-     * @param strokeWidth the stroke width of the rectangle
-     * @param color       the color of the rectangle
+     * @return the layer in use
      */
-    public void drawRect(int x, int y, int width, int height, int strokeWidth, int color) {
-        if (width <= 0 || height <= 0)
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * This method is used to rasterize all draw calls recorded since the last flush.
+     * It does nothing if neither deferred nor parallel rendering is enabled,
+     * or if nothing was recorded since the last flush.
+     */
+    public void flush() {
+        if (commands == null || commands.isEmpty() || commands.isRetained)
             return;
-        int x0 = x;
-        int y0 = y;
-        int x1 = x + width;
-        int y1 = y + height;
-        strokeWidth = Math.min(strokeWidth, Math.min(width, height) + 1);
-        while (strokeWidth > 0) {
-            drawLine(x0, y0, x1, y0, color);
-            drawLine(x0, y1, x1, y1, color);
-            drawLine(x0, y0, x0, y1, color);
-            drawLine(x1, y0, x1, y1, color);
-            x0++;
-            y0++;
-            x1--;
-            y1--;
-            strokeWidth--;
-        }
+        commands.optimize();
+        rasterize();
+        commands.isRetained = true;
+        isStateRecorded = false;
     }
 
     /**
-     * This method is used to fill a rectangle on the target buffer.
-     *
-     * @param x      the x coordinate of the rectangle
-     * @param y      the y coordinate of the rectangle
-     * @param width  the width of the rectangle
-     * @param height the height of the rectangle
-     * @param color  the color of the rectangle
+     * This method is used to rasterize the last flushed display list again, for frames where nothing changed.
+     * Draw calls recorded since the last flush are flushed instead.
+     * It does nothing if neither deferred nor parallel rendering is enabled.
      */
-    public void fillRect(int x, int y, int width, int height, int color) {
-        if (width <= 0 || height <= 0)
+    public void replay() {
+        if (commands == null || commands.isEmpty())
             return;
-        for (int yy = y; yy <= y + height; yy++) {
-            for (int xx = x; xx <= x + width; xx++) {
-                setPixel(xx, yy, color);
+        if (commands.isRetained)
+            rasterize();
+        else
+            flush();
+    }
+
+    /**
+     * This method is used to rasterize the command buffer, on the common ForkJoinPool if parallel rendering is enabled.
+     * The band renderers have no target sprite, so the target is marked modified here once every band is done.
+     */
+    private void rasterize() {
+        if (window != null && window.isPartialPresentationEnabled()) {
+            int[] data = commands.commands;
+            for (int base = 0; base < commands.size * CommandBuffer.STRIDE; base += CommandBuffer.STRIDE)
+                window.markDirty(data[base + CommandBuffer.X0], data[base + CommandBuffer.Y0],
+                        data[base + CommandBuffer.X1] - data[base + CommandBuffer.X0],
+                        data[base + CommandBuffer.Y1] - data[base + CommandBuffer.Y0]);
+        }
+        if (!isParallelEnabled) {
+            if (view == null)
+                view = new Renderer(this, 0, height);
+            view.execute(commands);
+        } else {
+            if (bands == null) {
+                int count = Math.max(1, Math.min(height, ForkJoinPool.commonPool().getParallelism() * 2));
+                int bandHeight = (height + count - 1) / count;
+                bands = new Renderer[(height + bandHeight - 1) / bandHeight];
+                for (int i = 0; i < bands.length; i++)
+                    bands[i] = new Renderer(this, i * bandHeight, Math.min(height, (i + 1) * bandHeight));
             }
+            ForkJoinPool.commonPool().invoke(new BandTask(0, bands.length));
         }
+        if (target != null)
+            target.markModified();
     }
 
     /**
-     * This method is used to draw a circle on the target buffer.
+     * This method is used to record a draw call into the command buffer.
+     * The current render state is recorded first if it changed since the last recorded draw call.
+     * Draw calls whose bounds lie outside the clip rectangle are not recorded,
+     * and the recorded bounds are clipped to it.
+     * Recording into a display list that was already flushed starts a new display list.
      *
-     * @param x      the x coordinate of the circle
-     * @param y      the y coordinate of the circle
-     * @param radius the radius of the circle
-     * @param color  the color of the circle
+     * @param type      the type of the command
+     * @param reference the object the command refers to, or null
+     * @param x0        the left edge of the bounds of the command
+     * @param y0        the top edge of the bounds of the command
+     * @param x1        the right edge of the bounds of the command, exclusive
+     * @param y1        the bottom edge of the bounds of the command, exclusive
+     * @return the index of the first slot of the command, or -1 if it was not recorded
+     */
+    private int record(int type, Object reference, int x0, int y0, int x1, int y1) {
+        if (x1 <= clipX0 || x0 >= clipX1 || y1 <= clipY0 || y0 >= clipY1)
+            return -1;
+        if (commands.isRetained) {
+            commands.clear();
+            isStateRecorded = false;
+        }
+        if (!isStateRecorded) {
+            commands.addState(blendMode.ordinal(), (isAlphaEnabled ? 1 : 0) | (isFixedPointEnabled ? 2 : 0)
+                            | (isAntiAliasingEnabled ? 4 : 0) | (isFilteringEnabled ? 8 : 0),
+                    Float.floatToRawIntBits(globalAlpha), globalAlphaFixed, clipX0, clipY0, clipX1, clipY1);
+            isStateRecorded = true;
+        }
+        return commands.add(type, reference, layer, Math.max(x0, clipX0), Math.max(y0, clipY0),
+                Math.min(x1, clipX1), Math.min(y1, clipY1)) + CommandBuffer.ARGUMENTS;
+    }
+
+    /**
+     * This method is used to rasterize the recorded draw calls that touch the band of this renderer.
+     *
+     * @param buffer the command buffer to rasterize
+     */
+    private void execute(CommandBuffer buffer) {
+        int[] data = buffer.commands;
+        int state = -1;
+        for (int i = 0; i < buffer.size; i++) {
+            int base = i * CommandBuffer.STRIDE;
+            if (data[base + CommandBuffer.Y1] <= bandY0 || data[base + CommandBuffer.Y0] >= bandY1)
+                continue;
+            if (data[base + CommandBuffer.STATE] != state) {
+                state = data[base + CommandBuffer.STATE];
+                int[] states = buffer.states;
+                int stateBase = state * CommandBuffer.STATE_STRIDE;
+                blendMode = BLEND_MODES[states[stateBase]];
+                isAlphaEnabled = (states[stateBase + 1] & 1) != 0;
+                isFixedPointEnabled = (states[stateBase + 1] & 2) != 0;
+                isAntiAliasingEnabled = (states[stateBase + 1] & 4) != 0;
+                isFilteringEnabled = (states[stateBase + 1] & 8) != 0;
+                globalAlpha = Float.intBitsToFloat(states[stateBase + 2]);
+                globalAlphaFixed = states[stateBase + 3];
+                clipX0 = states[stateBase + 4];
+                clipY0 = Math.max(states[stateBase + 5], bandY0);
+                clipX1 = states[stateBase + 6];
+                clipY1 = Math.max(clipY0, Math.min(states[stateBase + 7], bandY1));
+            }
+            int a = base + CommandBuffer.ARGUMENTS;
+            Object reference = buffer.references[i * CommandBuffer.REFERENCE_STRIDE];
+            switch (data[base + CommandBuffer.TYPE]) {
+                case CommandBuffer.CLEAR:
+                    clear(data[a]);
+                    break;
+                case CommandBuffer.PIXEL:
+                    setPixel(data[a], data[a + 1], data[a + 2]);
+                    break;
+                case CommandBuffer.LINE:
+                    drawLine(data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4]);
+                    break;
+                case CommandBuffer.DRAW_RECT:
+                    drawRect(data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4], data[a + 5]);
+                    break;
+                case CommandBuffer.FILL_RECT:
+                    fillRect(data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4]);
+                    break;
+                case CommandBuffer.DRAW_CIRCLE:
+                    drawCircle(data[a], data[a + 1], data[a + 2], data[a + 3]);
+                    break;
+                case CommandBuffer.FILL_CIRCLE:
+                    fillCircle(data[a], data[a + 1], data[a + 2], data[a + 3]);
+                    break;
+                case CommandBuffer.FILL_ELLIPSE:
+                    fillEllipse(data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4]);
+                    break;
+                case CommandBuffer.DRAW_TRIANGLE:
+                    drawTriangle(data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4], data[a + 5], data[a + 6]);
+                    break;
+                case CommandBuffer.FILL_TRIANGLE:
+                    fillTriangle(data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4], data[a + 5], data[a + 6]);
+                    break;
+                case CommandBuffer.FILL_POLYGON:
+                    fillPolygon(buffer.data, data[a], buffer.data, data[a] + data[a + 1], data[a + 1],
+                            FILL_RULES[data[a + 2]], data[a + 3]);
+                    break;
+                case CommandBuffer.TEXT:
+                    drawText(data[a], data[a + 1], data[a + 2], (String) reference,
+                            (FontAtlas) buffer.references[i * CommandBuffer.REFERENCE_STRIDE + 1]);
+                    break;
+                case CommandBuffer.SPRITE:
+                    drawSprite((Sprite) reference, data[a], data[a + 1]);
+                    break;
+                case CommandBuffer.SPRITE_REGION:
+                    drawSprite((Sprite) reference, data[a], data[a + 1], data[a + 2], data[a + 3], data[a + 4],
+                            data[a + 5], (data[a + 6] & 1) != 0, (data[a + 6] & 2) != 0);
+                    break;
+                case CommandBuffer.NINE_SLICE:
+                    drawNineSlice((NineSlice) reference, data[a], data[a + 1], data[a + 2], data[a + 3]);
+                    break;
+                case CommandBuffer.SPRITE_TRANSFORMED:
+                    drawTransformed((Sprite) reference, data[a], data[a + 1],
+                            Float.intBitsToFloat(data[a + 2]), Float.intBitsToFloat(data[a + 3]),
+                            Float.intBitsToFloat(data[a + 4]), Float.intBitsToFloat(data[a + 5]),
+                            Float.intBitsToFloat(data[a + 6]), Float.intBitsToFloat(data[a + 7]),
+                            data[a + 8], data[a + 9], data[a + 10], data[a + 11]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * This method is used to clear the target buffer to a specific color.
+     * Only the area inside the clip rectangle is cleared.
+     *
+     * @param color the color to which the target buffer will be cleared
+     */
+    public void clear(int color) {
+        if (commands != null) {
+            int a = record(CommandBuffer.CLEAR, null, 0, 0, width, height);
+            if (a >= 0)
+                commands.commands[a] = color;
+            return;
+        }
+        markDirty(0, 0, width, height);
+        color |= isSprite ? 0 : 0xff000000;
+        if (clipX0 == 0 && clipY0 == 0 && clipX1 == width && clipY1 == height) {
+            Arrays.fill(pixels, color);
+            return;
+        }
+        for (int y = clipY0; y < clipY1; y++)
+            Arrays.fill(pixels, clipX0 + y * width, clipX1 + y * width, color);
+    }
+
+    /**
+     * This method is used to draw a pixel on the target buffer.
+     *
+     * @param x     the x coordinate of the pixel
+     * @param y     the y coordinate of the pixel
+     * @param color the color of the pixel
+     */
+    public void setPixel(int x, int y, int color) {
+        if (commands != null) {
+            int a = record(CommandBuffer.PIXEL, null, x, y, x + 1, y + 1);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = color;
+            }
+            return;
+        }
+        if (x < clipX0 || x >= clipX1 || y < clipY0 || y >= clipY1)
+            return;
+        markDirty(x, y, x + 1, y + 1);
+        plot(x + y * width, color);
+    }
+
+    /**
+     * This method is used to tell the window that a region of its frame buffer is about to be modified.
+     * The region is clipped to the clip rectangle first.
+     * When the target buffer belongs to a sprite, the sprite is told that its pixels change instead.
+     *
+     * @param x0 the left edge of the region
+     * @param y0 the top edge of the region
+     * @param x1 the right edge of the region, exclusive
+     * @param y1 the bottom edge of the region, exclusive
+     */
+    private void markDirty(int x0, int y0, int x1, int y1) {
+        if (target != null)
+            target.markModified();
+        if (window == null || !window.isPartialPresentationEnabled())
+            return;
+        x0 = Math.max(x0, clipX0);
+        y0 = Math.max(y0, clipY0);
+        x1 = Math.min(x1, clipX1);
+        y1 = Math.min(y1, clipY1);
+        if (x0 < x1 && y0 < y1)
+            window.markDirty(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * This method is used to draw a pixel on the target buffer without checking it against the clip rectangle.
+     *
+     * @param index the index of the pixel in the target buffer
+     * @param color the color of the pixel
+     */
+    private void plot(int index, int color) {
+        int alpha = (color >>> 24);
+        if (alpha == 0 && blendMode != BlendMode.REPLACE)
+            return;
+        if (blendMode != BlendMode.NORMAL) {
+            pixels[index] = blendMode.blend(pixels[index], color,
+                    globalAlphaFixed == -1 ? alpha : globalAlphaFixed);
+            return;
+        }
+
+        if (isAlphaEnabled && alpha < 0xff && isFixedPointEnabled) {
+            pixels[index] = BlendMode.NORMAL.blend(pixels[index], color,
+                    globalAlphaFixed == -1 ? alpha : globalAlphaFixed);
+        } else if (isAlphaEnabled && alpha < 0xff) {
+            int previousColor = pixels[index];
+            int red = (previousColor >> 16) & 0xff;
+            int green = (previousColor >> 8) & 0xff;
+            int blue = (previousColor) & 0xff;
+            if (globalAlpha == -1) {
+                float alphaF = (float) alpha / 0xff;
+                red = (int) (((1 - alphaF) * red + alphaF * ((color >> 16) & 0xff)));
+                green = (int) ((1 - alphaF) * green + alphaF * ((color >> 8) & 0xff));
+                blue = (int) ((1 - alphaF) * blue + alphaF * (color & 0xff));
+            } else {
+                red = (int) (((1 - globalAlpha) * red + globalAlpha * ((color >> 16) & 0xff)));
+                green = (int) ((1 - globalAlpha) * green + globalAlpha * ((color >> 8) & 0xff));
+                blue = (int) ((1 - globalAlpha) * blue + globalAlpha * (color & 0xff));
+            }
+            pixels[index] = 0xff000000 | red << 16 | green << 8 | blue;
+        } else
+            pixels[index] = color | 0xff000000;
+    }
+
+    /**
+     * This method is used to blend a partially covered pixel on the target buffer
+     * without checking it against the clip rectangle.
+     * The coverage scales the alpha the pixel would get from plot(), and the result is always blended.
+     *
+     * @param index    the index of the pixel in the target buffer
+     * @param color    the color of the pixel
+     * @param coverage how much of the pixel is covered, in the range 0 to 255
+     */
+    private void plotCoverage(int index, int color, int coverage) {
+        int sourceAlpha = color >>> 24;
+        if (sourceAlpha == 0 && blendMode != BlendMode.REPLACE)
+            return;
+        int alpha = globalAlphaFixed == -1 ? sourceAlpha : globalAlphaFixed;
+        if (blendMode == BlendMode.NORMAL && !isAlphaEnabled)
+            alpha = 0xff;
+        else if (blendMode == BlendMode.ALPHA_TEST)
+            // The alpha test looks at the alpha of the color itself, so the coverage has to be applied to it.
+            color = (color & 0xffffff) | BlendMode.multiply(sourceAlpha, coverage) << 24;
+        alpha = BlendMode.MULTIPLY_TABLE[alpha << 8 | coverage] & 0xff;
+        if (alpha != 0)
+            pixels[index] = blendMode.blend(pixels[index], color, alpha);
+    }
+
+    /**
+     * This method is used to blend a partially covered pixel on the target buffer if it is inside the clip rectangle.
+     *
+     * @param x        the x coordinate of the pixel
+     * @param y        the y coordinate of the pixel
+     * @param color    the color of the pixel
+     * @param coverage how much of the pixel is covered, in the range 0 to 255
+     */
+    private void setPixelCoverage(int x, int y, int color, int coverage) {
+        if (x >= clipX0 && x < clipX1 && y >= clipY0 && y < clipY1)
+            plotCoverage(x + y * width, color, coverage);
+    }
+
+    /**
+     * This method is used to draw a line on the target buffer.
+     *
+     * @param x0    the x coordinate of the first point
+     * @param y0    the y coordinate of the first point
+     * @param x1    the x coordinate of the second point
+     * @param y1    the y coordinate of the second point
+     * @param color the color of the line
+     */
+    public void drawLine(int x0, int y0, int x1, int y1, int color) {
+        if (commands != null) {
+            int a = record(CommandBuffer.LINE, null,
+                    Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1) + 1, Math.max(y0, y1) + 1);
+            if (a >= 0) {
+                commands.commands[a] = x0;
+                commands.commands[a + 1] = y0;
+                commands.commands[a + 2] = x1;
+                commands.commands[a + 3] = y1;
+                commands.commands[a + 4] = color;
+            }
+            return;
+        }
+        markDirty(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1) + 1, Math.max(y0, y1) + 1);
+        if (y0 == y1) {
+            drawHorizontalLine(Math.min(x0, x1), Math.max(x0, x1), y0, color);
+            return;
+        }
+        if (Math.max(x0, x1) < clipX0 || Math.min(x0, x1) >= clipX1
+                || Math.max(y0, y1) < clipY0 || Math.min(y0, y1) >= clipY1)
+            return;
+        if (isAntiAliasingEnabled && x0 != x1) {
+            drawLineSmooth(x0, y0, x1, y1, color);
+            return;
+        }
+        boolean inside = Math.min(x0, x1) >= clipX0 && Math.max(x0, x1) < clipX1
+                && Math.min(y0, y1) >= clipY0 && Math.max(y0, y1) < clipY1;
+        int dx = Math.abs(x1 - x0);
+        int sx = x0 < x1 ? 1 : -1;
+        int dy = -Math.abs(y1 - y0);
+        int sy = y0 < y1 ? 1 : -1;
+        int error = dx + dy;
+
+        while (true) {
+            if (inside)
+                plot(x0 + y0 * width, color);
+            else
+                setPixel(x0, y0, color);
+            if (x0 == x1 && y0 == y1)
+                break;
+            int e2 = 2 * error;
+            if (e2 >= dy) {
+                if (x0 == x1)
+                    break;
+                error = error + dy;
+                x0 = x0 + sx;
+            }
+            if (e2 <= dx) {
+                if (y0 == y1)
+                    break;
+                error = error + dx;
+                y0 = y0 + sy;
+            }
+        }
+    }
+
+    /**
+     * This method is used to draw an anti-aliased line with Wu's algorithm.
+     * The line is stepped along its major axis with the minor coordinate in 16.16 fixed point,
+     * and each step is split between the two pixels straddling the exact position.
+     *
+     * @param x0    the x coordinate of the first point
+     * @param y0    the y coordinate of the first point
+     * @param x1    the x coordinate of the second point
+     * @param y1    the y coordinate of the second point
+     * @param color the color of the line
+     */
+    private void drawLineSmooth(int x0, int y0, int x1, int y1, int color) {
+        boolean isSteep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        if (isSteep) {
+            x0 = x0 ^ y0 ^ (y0 = x0);
+            x1 = x1 ^ y1 ^ (y1 = x1);
+        }
+        if (x0 > x1) {
+            x0 = x0 ^ x1 ^ (x1 = x0);
+            y0 = y0 ^ y1 ^ (y1 = y0);
+        }
+        long gradient = ((long) (y1 - y0) << 16) / (x1 - x0);
+        long position = (long) y0 << 16;
+        for (int major = x0; major <= x1; major++, position += gradient) {
+            int minor = (int) (position >> 16);
+            int fraction = (int) (position >> 8) & 0xff;
+            if (isSteep) {
+                setPixelCoverage(minor, major, color, 0xff - fraction);
+                if (fraction != 0)
+                    setPixelCoverage(minor + 1, major, color, fraction);
+            } else {
+                setPixelCoverage(major, minor, color, 0xff - fraction);
+                if (fraction != 0)
+                    setPixelCoverage(major, minor + 1, color, fraction);
+            }
+        }
+    }
+
+    /**
+     * This method is used to draw a rectangle on the target buffer.
+     * The stroke is filled as up to four rectangles around the inside of the rectangle,
+     * so every pixel of a thick stroke is drawn exactly once.
+     *
+     * @param x           the x coordinate of the rectangle
+     * @param y           the y coordinate of the rectangle
+     * @param width       the width of the rectangle
+     * @param height      the height of the rectangle
+     * @param strokeWidth the stroke width of the rectangle
+     * @param color       the color of the rectangle
+     */
+    public void drawRect(int x, int y, int width, int height, int strokeWidth, int color) {
+        if (width <= 0 || height <= 0)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.DRAW_RECT, null, x, y, x + width + 1, y + height + 1);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = width;
+                commands.commands[a + 3] = height;
+                commands.commands[a + 4] = strokeWidth;
+                commands.commands[a + 5] = color;
+            }
+            return;
+        }
+        if (strokeWidth <= 0)
+            return;
+        markDirty(x, y, x + width + 1, y + height + 1);
+        int x1 = x + width;
+        int y1 = y + height;
+        int innerX0 = x + strokeWidth;
+        int innerY0 = y + strokeWidth;
+        int innerX1 = x1 - strokeWidth;
+        int innerY1 = y1 - strokeWidth;
+        if (innerX0 > innerX1 || innerY0 > innerY1) {
+            fillArea(x, y, x1, y1, color);
+            return;
+        }
+        fillArea(x, y, x1, innerY0 - 1, color);
+        fillArea(x, innerY0, innerX0 - 1, innerY1, color);
+        fillArea(innerX1 + 1, innerY0, x1, innerY1, color);
+        fillArea(x, innerY1 + 1, x1, y1, color);
+    }
+
+    /**
+     * This method is used to fill a rectangle on the target buffer.
+     *
+     * @param x      the x coordinate of the rectangle
+     * @param y      the y coordinate of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @param color  the color of the rectangle
+     */
+    public void fillRect(int x, int y, int width, int height, int color) {
+        if (width <= 0 || height <= 0)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.FILL_RECT, null, x, y, x + width + 1, y + height + 1);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = width;
+                commands.commands[a + 3] = height;
+                commands.commands[a + 4] = color;
+            }
+            return;
+        }
+        fillArea(x, y, x + width, y + height, color);
+    }
+
+    /**
+     * This method is used to fill the pixels between two corners on the target buffer, both inclusive.
+     * The area is clipped once against the clip rectangle, the first row is filled as a span
+     * and opaque fills copy it to the following rows.
+     *
+     * @param x0    the x coordinate of the top left corner
+     * @param y0    the y coordinate of the top left corner
+     * @param x1    the x coordinate of the bottom right corner
+     * @param y1    the y coordinate of the bottom right corner
+     * @param color the color of the area
+     */
+    private void fillArea(int x0, int y0, int x1, int y1, int color) {
+        x0 = Math.max(x0, clipX0);
+        y0 = Math.max(y0, clipY0);
+        x1 = Math.min(x1, clipX1 - 1);
+        y1 = Math.min(y1, clipY1 - 1);
+        if (x0 > x1 || y0 > y1)
+            return;
+        markDirty(x0, y0, x1 + 1, y1 + 1);
+
+        int length = x1 - x0 + 1;
+        int offset = x0 + y0 * width;
+        fillSpan(offset, length, color);
+        if (blendMode != BlendMode.NORMAL || (color >>> 24) == 0 || (isAlphaEnabled && (color >>> 24) < 0xff)) {
+            for (int row = y0 + 1; row <= y1; row++)
+                fillSpan(x0 + row * width, length, color);
+        } else {
+            for (int row = y0 + 1; row <= y1; row++)
+                System.arraycopy(pixels, offset, pixels, x0 + row * width, length);
+        }
+    }
+
+    /**
+     * This method is used to draw a circle on the target buffer.
+     *
+     * @param x      the x coordinate of the circle
+     * @param y      the y coordinate of the circle
+     * @param radius the radius of the circle
+     * @param color  the color of the circle
      */
     public void drawCircle(int x, int y, int radius, int color) {
-        if (radius <= 0)
+        if (radius <= 0 || x + radius < clipX0 || x - radius >= clipX1 || y + radius < clipY0 || y - radius >= clipY1)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.DRAW_CIRCLE, null, x - radius, y - radius, x + radius + 1, y + radius + 1);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = radius;
+                commands.commands[a + 3] = color;
+            }
+            return;
+        }
+        markDirty(x - radius, y - radius, x + radius + 1, y + radius + 1);
+        if (isAntiAliasingEnabled) {
+            drawCircleSmooth(x, y, radius, color);
+            return;
+        }
+        int currX = 0, currY = radius;
+        int decisionParameter = 3 - 2 * radius;
+        setPixel(x + currX, y + currY, color);
+        setPixel(x - currX, y + currY, color);
+        setPixel(x + currX, y - currY, color);
+        setPixel(x - currX, y - currY, color);
+        setPixel(x + currY, y + currX, color);
+        setPixel(x - currY, y + currX, color);
+        setPixel(x + currY, y - currX, color);
+        setPixel(x - currY, y - currX, color);
+        while (currY >= currX) {
+            currX++;
+            if (decisionParameter > 0) {
+                currY--;
+                decisionParameter = decisionParameter + 4 * (currX - currY) + 10;
+            } else
+                decisionParameter = decisionParameter + 4 * currX + 6;
+            setPixel(x + currX, y + currY, color);
+            setPixel(x - currX, y + currY, color);
+            setPixel(x + currX, y - currY, color);
+            setPixel(x - currX, y - currY, color);
+            setPixel(x + currY, y + currX, color);
+            setPixel(x - currY, y + currX, color);
+            setPixel(x + currY, y - currX, color);
+            setPixel(x - currY, y - currX, color);
+        }
+    }
+
+    /**
+     * This method is used to fill a circle on the target buffer.
+     * The circle is filled from a cached span table with one span per row,
+     * so every pixel is drawn exactly once and translucent circles blend evenly.
+     *
+     * @param x      the x coordinate of the circle
+     * @param y      the y coordinate of the circle
+     * @param radius the radius of the circle
+     * @param color  the color of the circle
+     */
+    public void fillCircle(int x, int y, int radius, int color) {
+        if (radius <= 0 || x + radius < clipX0 || x - radius >= clipX1 || y + radius < clipY0 || y - radius >= clipY1)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.FILL_CIRCLE, null, x - radius, y - radius, x + radius + 1, y + radius + 1);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = radius;
+                commands.commands[a + 3] = color;
+            }
+            return;
+        }
+        markDirty(x - radius, y - radius, x + radius + 1, y + radius + 1);
+        if (isAntiAliasingEnabled) {
+            fillCircleSmooth(x, y, radius, color);
+            return;
+        }
+        int[] table = SpanTable.getCircle(radius);
+        for (int row = Math.max(-radius, clipY0 - y), last = Math.min(radius, clipY1 - 1 - y); row <= last; row++) {
+            int halfWidth = table[SpanTable.CIRCLE_OFFSET + Math.abs(row)];
+            if (halfWidth >= 0)
+                drawHorizontalLine(x - halfWidth, x + halfWidth, y + row, color);
+        }
+    }
+
+    /**
+     * This method is used to fill an axis-aligned ellipse on the target buffer.
+     * Like fillCircle(), it is filled from a cached span table with one span per row.
+     *
+     * @param x       the x coordinate of the center of the ellipse
+     * @param y       the y coordinate of the center of the ellipse
+     * @param radiusX the horizontal radius of the ellipse
+     * @param radiusY the vertical radius of the ellipse
+     * @param color   the color of the ellipse
+     */
+    public void fillEllipse(int x, int y, int radiusX, int radiusY, int color) {
+        if (radiusX <= 0 || radiusY <= 0 || x + radiusX < clipX0 || x - radiusX >= clipX1
+                || y + radiusY < clipY0 || y - radiusY >= clipY1)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.FILL_ELLIPSE, null,
+                    x - radiusX, y - radiusY, x + radiusX + 1, y + radiusY + 1);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = radiusX;
+                commands.commands[a + 3] = radiusY;
+                commands.commands[a + 4] = color;
+            }
+            return;
+        }
+        markDirty(x - radiusX, y - radiusY, x + radiusX + 1, y + radiusY + 1);
+        int[] table = SpanTable.getEllipse(radiusX, radiusY);
+        for (int row = Math.max(-radiusY, clipY0 - y), last = Math.min(radiusY, clipY1 - 1 - y); row <= last; row++) {
+            int halfWidth = table[SpanTable.ELLIPSE_OFFSET + Math.abs(row)];
+            drawHorizontalLine(x - halfWidth, x + halfWidth, y + row, color);
+        }
+    }
+
+    /**
+     * This method is used to draw an anti-aliased circle.
+     * Every pixel within one unit of the circle is covered by one minus its distance from it.
+     *
+     * @param x      the x coordinate of the circle
+     * @param y      the y coordinate of the circle
+     * @param radius the radius of the circle
+     * @param color  the color of the circle
+     */
+    private void drawCircleSmooth(int x, int y, int radius, int color) {
+        long inner = (long) (radius - 1) * (radius - 1);
+        long outer = (long) (radius + 1) * (radius + 1);
+        for (int row = Math.max(-radius, clipY0 - y), last = Math.min(radius, clipY1 - 1 - y); row <= last; row++) {
+            long rowSquared = (long) row * row;
+            int first = inner > rowSquared ? (int) Math.sqrt(inner - rowSquared) + 1 : 0;
+            int end = (int) Math.sqrt(outer - rowSquared);
+            for (int column = first; column <= end; column++) {
+                double distance = Math.sqrt((double) column * column + rowSquared);
+                int coverage = (int) ((1 - Math.abs(distance - radius)) * 0xff + 0.5);
+                if (coverage <= 0)
+                    continue;
+                setPixelCoverage(x + column, y + row, color, coverage);
+                if (column != 0)
+                    setPixelCoverage(x - column, y + row, color, coverage);
+            }
+        }
+    }
+
+    /**
+     * This method is used to fill an anti-aliased circle.
+     * The pixels whose centers are at least half a pixel inside the circle are filled as one span per row,
+     * and the pixels around them are covered by how far their centers are from the circle.
+     *
+     * @param x      the x coordinate of the circle
+     * @param y      the y coordinate of the circle
+     * @param radius the radius of the circle
+     * @param color  the color of the circle
+     */
+    private void fillCircleSmooth(int x, int y, int radius, int color) {
+        double inner = (radius - 0.5) * (radius - 0.5);
+        double outer = (radius + 0.5) * (radius + 0.5);
+        for (int row = Math.max(-radius, clipY0 - y), last = Math.min(radius, clipY1 - 1 - y); row <= last; row++) {
+            double rowSquared = (double) row * row;
+            int solid = inner >= rowSquared ? (int) Math.sqrt(inner - rowSquared) : -1;
+            if (solid >= 0)
+                drawHorizontalLine(x - solid, x + solid, y + row, color);
+            int end = (int) Math.sqrt(outer - rowSquared);
+            for (int column = solid + 1; column <= end; column++) {
+                double distance = Math.sqrt(column * column + rowSquared);
+                int coverage = (int) (Math.min(1, radius + 0.5 - distance) * 0xff + 0.5);
+                if (coverage <= 0)
+                    continue;
+                setPixelCoverage(x + column, y + row, color, coverage);
+                if (column != 0)
+                    setPixelCoverage(x - column, y + row, color, coverage);
+            }
+        }
+    }
+
+    /**
+     * This method is used to draw a triangle on the target buffer.
+     *
+     * @param x0    the x coordinate of the first point of the triangle
+     * @param y0    the y coordinate of the first point of the triangle
+     * @param x1    the x coordinate of the second point of the triangle
+     * @param y1    the y coordinate of the second point of the triangle
+     * @param x2    the x coordinate of the third point of the triangle
+     * @param y2    the y coordinate of the third point of the triangle
+     * @param color the color of the triangle
+     */
+    public void drawTriangle(int x0, int y0, int x1, int y1, int x2, int y2, int color) {
+        if (commands != null) {
+            recordTriangle(CommandBuffer.DRAW_TRIANGLE, x0, y0, x1, y1, x2, y2, color);
+            return;
+        }
+        markDirty(Math.min(x0, Math.min(x1, x2)), Math.min(y0, Math.min(y1, y2)),
+                Math.max(x0, Math.max(x1, x2)) + 1, Math.max(y0, Math.max(y1, y2)) + 1);
+        drawLine(x0, y0, x1, y1, color);
+        drawLine(x1, y1, x2, y2, color);
+        drawLine(x0, y0, x2, y2, color);
+    }
+
+    /**
+     * This method is used to record a triangle draw call into the command buffer.
+     *
+     * @param type  the type of the command
+     * @param x0    the x coordinate of the first point of the triangle
+     * @param y0    the y coordinate of the first point of the triangle
+     * @param x1    the x coordinate of the second point of the triangle
+     * @param y1    the y coordinate of the second point of the triangle
+     * @param x2    the x coordinate of the third point of the triangle
+     * @param y2    the y coordinate of the third point of the triangle
+     * @param color the color of the triangle
+     */
+    private void recordTriangle(int type, int x0, int y0, int x1, int y1, int x2, int y2, int color) {
+        int a = record(type, null, Math.min(x0, Math.min(x1, x2)), Math.min(y0, Math.min(y1, y2)),
+                Math.max(x0, Math.max(x1, x2)) + 1, Math.max(y0, Math.max(y1, y2)) + 1);
+        if (a < 0)
+            return;
+        commands.commands[a] = x0;
+        commands.commands[a + 1] = y0;
+        commands.commands[a + 2] = x1;
+        commands.commands[a + 3] = y1;
+        commands.commands[a + 4] = x2;
+        commands.commands[a + 5] = y2;
+        commands.commands[a + 6] = color;
+    }
+
+    /**
+     * This method is used to fill a triangle on the target buffer.
+     * Pixels inside all three edge functions of the triangle are filled, one span per row,
+     * with the ends of each span stepped exactly from row to row in integer arithmetic.
+     * Pixels on the top and left edges are filled and pixels on the bottom and right edges are not,
+     * so triangles that share an edge never draw the same pixel twice.
+     *
+     * @param x0    the x coordinate of the first point of the triangle
+     * @param y0    the y coordinate of the first point of the triangle
+     * @param x1    the x coordinate of the second point of the triangle
+     * @param y1    the y coordinate of the second point of the triangle
+     * @param x2    the x coordinate of the third point of the triangle
+     * @param y2    the y coordinate of the third point of the triangle
+     * @param color the color of the triangle
+     */
+    public void fillTriangle(int x0, int y0, int x1, int y1, int x2, int y2, int color) {
+        if (commands != null) {
+            recordTriangle(CommandBuffer.FILL_TRIANGLE, x0, y0, x1, y1, x2, y2, color);
+            return;
+        }
+        long area = ((long) x1 - x0) * ((long) y2 - y0) - ((long) y1 - y0) * ((long) x2 - x0);
+        if (area == 0)
+            return;
+        if (area < 0) {
+            x1 = x1 ^ x2 ^ (x2 = x1);
+            y1 = y1 ^ y2 ^ (y2 = y1);
+        }
+        int minX = Math.max(Math.min(x0, Math.min(x1, x2)), clipX0);
+        int minY = Math.max(Math.min(y0, Math.min(y1, y2)), clipY0);
+        int maxX = Math.min(Math.max(x0, Math.max(x1, x2)), clipX1 - 1);
+        int maxY = Math.min(Math.max(y0, Math.max(y1, y2)), clipY1 - 1);
+        if (minX > maxX || minY > maxY)
+            return;
+        markDirty(minX, minY, maxX + 1, maxY + 1);
+
+        long a0 = (long) y1 - y2, b0 = (long) x2 - x1, c0 = edgeConstant(x1, y1, x2, y2);
+        long a1 = (long) y2 - y0, b1 = (long) x0 - x2, c1 = edgeConstant(x2, y2, x0, y0);
+        long a2 = (long) y0 - y1, b2 = (long) x1 - x0, c2 = edgeConstant(x0, y0, x1, y1);
+        if ((a0 == 0 && b0 < 0) || (a1 == 0 && b1 < 0) || (a2 == 0 && b2 < 0))
+            maxY = Math.min(maxY, Math.max(y0, Math.max(y1, y2)) - 1);
+
+        // Every row of a triangle is bounded by at most two edges on each side. Edges with a > 0
+        // bound the first pixel and edges with a < 0 the last one, unused slots hold an edge that
+        // never limits the row. Horizontal edges only limit rows and were applied to maxY above.
+        long leftA = 1, leftB = 0, leftC = 0;
+        long otherLeftA = 1, otherLeftB = 0, otherLeftC = 0;
+        long rightA = -1, rightB = 0, rightC = Integer.MAX_VALUE;
+        long otherRightA = -1, otherRightB = 0, otherRightC = Integer.MAX_VALUE;
+        if (a0 > 0) {
+            leftA = a0;
+            leftB = b0;
+            leftC = c0;
+        } else if (a0 < 0) {
+            rightA = a0;
+            rightB = b0;
+            rightC = c0;
+        }
+        if (a1 > 0) {
+            otherLeftA = a1;
+            otherLeftB = b1;
+            otherLeftC = c1;
+        } else if (a1 < 0) {
+            otherRightA = a1;
+            otherRightB = b1;
+            otherRightC = c1;
+        }
+        if (a2 > 0 && a0 <= 0) {
+            leftA = a2;
+            leftB = b2;
+            leftC = c2;
+        } else if (a2 > 0) {
+            otherLeftA = a2;
+            otherLeftB = b2;
+            otherLeftC = c2;
+        } else if (a2 < 0 && a0 >= 0) {
+            rightA = a2;
+            rightB = b2;
+            rightC = c2;
+        } else if (a2 < 0) {
+            otherRightA = a2;
+            otherRightB = b2;
+            otherRightC = c2;
+        }
+        long leftStep = Math.floorDiv(leftB, leftA), leftCarry = leftB - leftStep * leftA;
+        long otherLeftStep = Math.floorDiv(otherLeftB, otherLeftA);
+        long otherLeftCarry = otherLeftB - otherLeftStep * otherLeftA;
+        long rightStep = Math.floorDiv(rightB, -rightA), rightCarry = rightB + rightStep * rightA;
+        long otherRightStep = Math.floorDiv(otherRightB, -otherRightA);
+        long otherRightCarry = otherRightB + otherRightStep * otherRightA;
+
+        // Track floor(e / |a|) and its remainder for every bounding edge from row to row,
+        // so the ends of each row are exact without dividing on every row.
+        int w = maxX - minX;
+        long value = leftA * minX + leftB * minY + leftC;
+        long leftQuotient = Math.floorDiv(value, leftA);
+        long leftRemainder = value - leftQuotient * leftA;
+        value = otherLeftA * minX + otherLeftB * minY + otherLeftC;
+        long otherLeftQuotient = Math.floorDiv(value, otherLeftA);
+        long otherLeftRemainder = value - otherLeftQuotient * otherLeftA;
+        value = rightA * minX + rightB * minY + rightC;
+        long rightQuotient = Math.floorDiv(value, -rightA);
+        long rightRemainder = value + rightQuotient * rightA;
+        value = otherRightA * minX + otherRightB * minY + otherRightC;
+        long otherRightQuotient = Math.floorDiv(value, -otherRightA);
+        long otherRightRemainder = value + otherRightQuotient * otherRightA;
+        for (int y = minY; y <= maxY; y++) {
+            long start = Math.max(0, -Math.min(leftQuotient, otherLeftQuotient));
+            long end = Math.min(w, Math.min(rightQuotient, otherRightQuotient));
+            if (start <= end)
+                fillSpan(minX + (int) start + y * width, (int) (end - start) + 1, color);
+
+            // The carries change unpredictably from row to row, so they are applied without branching.
+            leftRemainder += leftCarry;
+            long carry = (leftA - 1 - leftRemainder) >> 63;
+            leftQuotient += leftStep - carry;
+            leftRemainder -= leftA & carry;
+            otherLeftRemainder += otherLeftCarry;
+            carry = (otherLeftA - 1 - otherLeftRemainder) >> 63;
+            otherLeftQuotient += otherLeftStep - carry;
+            otherLeftRemainder -= otherLeftA & carry;
+            rightRemainder += rightCarry;
+            carry = (-rightA - 1 - rightRemainder) >> 63;
+            rightQuotient += rightStep - carry;
+            rightRemainder += rightA & carry;
+            otherRightRemainder += otherRightCarry;
+            carry = (-otherRightA - 1 - otherRightRemainder) >> 63;
+            otherRightQuotient += otherRightStep - carry;
+            otherRightRemainder += otherRightA & carry;
+        }
+    }
+
+    /**
+     * This method is used to fill an anti-aliased polygon.
+     * The exact area of every pixel inside the polygon is accumulated row by row, with each vertex
+     * at the center of the pixel it names. Runs of fully covered pixels are filled as spans,
+     * and partially covered pixels are blended by their coverage.
+     * With NON_ZERO the coverage saturates where parts overlap, with EVEN_ODD it folds back towards zero.
+     *
+     * @param xs      the array holding the x coordinates of the vertices
+     * @param xOffset the index of the first x coordinate
+     * @param ys      the array holding the y coordinates of the vertices
+     * @param yOffset the index of the first y coordinate
+     * @param n       the number of vertices of the polygon
+     * @param rule    the fill rule used to decide which parts of the polygon are inside
+     * @param color   the color of the polygon
+     */
+    private void fillPolygonSmooth(int[] xs, int xOffset, int[] ys, int yOffset, int n, FillRule rule, int color) {
+        if (coverageTable == null)
+            coverageTable = new CoverageTable();
+        CoverageTable table = coverageTable;
+        table.set(xs, xOffset, ys, yOffset, n);
+        int minX = Math.max(table.getLeft(), clipX0);
+        int minY = Math.max(table.getTop(), clipY0);
+        int maxX = Math.min(table.getRight(), clipX1);
+        int maxY = Math.min(table.getBottom(), clipY1);
+        if (minX >= maxX || minY >= maxY)
+            return;
+        markDirty(minX, minY, maxX, maxY);
+
+        boolean isEvenOdd = rule == FillRule.EVEN_ODD;
+        int w = maxX - minX;
+        table.start(minY, minX, maxX);
+        for (int y = minY; y < maxY; y++) {
+            float[] cells = table.accumulate();
+            int offset = minX + y * width;
+            int runStart = -1;
+            float sum = 0;
+            for (int i = 0; i < w; i++) {
+                sum += cells[i];
+                float value = Math.abs(sum);
+                if (isEvenOdd) {
+                    value %= 2;
+                    value = value > 1 ? 2 - value : value;
+                } else
+                    value = Math.min(value, 1);
+                int coverage = (int) (value * 0xff + 0.5f);
+                if (coverage == 0xff) {
+                    if (runStart < 0)
+                        runStart = i;
+                    continue;
+                }
+                if (runStart >= 0) {
+                    fillSpan(offset + runStart, i - runStart, color);
+                    runStart = -1;
+                }
+                if (coverage != 0)
+                    plotCoverage(offset + i, color, coverage);
+            }
+            if (runStart >= 0)
+                fillSpan(offset + runStart, w - runStart, color);
+            table.next();
+        }
+    }
+
+    /**
+     * This method is used to compute the constant term of the edge function of a triangle edge.
+     * The edge function is non-negative on the inside of the edge, and the constant is lowered by one
+     * for edges that are neither top nor left edges, so the pixels exactly on them fail the inside test.
+     *
+     * @param ax the x coordinate of the start of the edge
+     * @param ay the y coordinate of the start of the edge
+     * @param bx the x coordinate of the end of the edge
+     * @param by the y coordinate of the end of the edge
+     * @return the constant term of the edge function
+     */
+    private static long edgeConstant(int ax, int ay, int bx, int by) {
+        boolean isTopLeft = by < ay || (by == ay && bx > ax);
+        return (long) ax * by - (long) ay * bx - (isTopLeft ? 0 : 1);
+    }
+
+    /**
+     * This method is used to fill a polygon on the target buffer.
+     * The polygon is closed by an edge from the last vertex back to the first one, and may be concave
+     * or cross itself, in which case the fill rule decides which of its parts are filled.
+     * The polygon is filled one scanline at a time from an active edge table, with one span per inside run,
+     * using the same rule as fillTriangle() for pixels exactly on an edge.
+     * With anti-aliasing enabled the edge pixels are blended by the area of them the polygon covers instead.
+     * Only the first n entries of the coordinate arrays are used, so the arrays may be reused between calls.
+     *
+     * @param xs    the x coordinates of the vertices of the polygon
+     * @param ys    the y coordinates of the vertices of the polygon
+     * @param n     the number of vertices of the polygon
+     * @param rule  the fill rule used to decide which parts of the polygon are inside
+     * @param color the color of the polygon
+     */
+    public void fillPolygon(int[] xs, int[] ys, int n, FillRule rule, int color) {
+        if (xs == null || ys == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Polygon coordinates can not be null!");
+            System.exit(-1);
+        }
+        if (rule == null) {
+            Debug.logError(getClass().getSimpleName() + " -> FillRule can not be null!");
+            System.exit(-1);
+        }
+        if (n < 0 || xs.length < n || ys.length < n) {
+            Debug.logError(getClass().getSimpleName() + " -> Polygon has fewer coordinates than vertices!");
+            System.exit(-1);
+        }
+        if (n < 3)
+            return;
+        if (commands != null) {
+            int minX = xs[0], minY = ys[0], maxX = xs[0], maxY = ys[0];
+            for (int i = 1; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            int a = record(CommandBuffer.FILL_POLYGON, null, minX, minY, maxX + 1, maxY + 1);
+            if (a < 0)
+                return;
+            commands.commands[a] = commands.addData(xs, ys, n);
+            commands.commands[a + 1] = n;
+            commands.commands[a + 2] = rule.ordinal();
+            commands.commands[a + 3] = color;
+            return;
+        }
+        fillPolygon(xs, 0, ys, 0, n, rule, color);
+    }
+
+    /**
+     * This method is used to fill a polygon whose coordinates start at an offset into their arrays.
+     *
+     * @param xs      the array holding the x coordinates of the vertices
+     * @param xOffset the index of the first x coordinate
+     * @param ys      the array holding the y coordinates of the vertices
+     * @param yOffset the index of the first y coordinate
+     * @param n       the number of vertices of the polygon
+     * @param rule    the fill rule used to decide which parts of the polygon are inside
+     * @param color   the color of the polygon
+     */
+    private void fillPolygon(int[] xs, int xOffset, int[] ys, int yOffset, int n, FillRule rule, int color) {
+        if (isAntiAliasingEnabled) {
+            fillPolygonSmooth(xs, xOffset, ys, yOffset, n, rule, color);
+            return;
+        }
+        if (edgeTable == null)
+            edgeTable = new EdgeTable();
+        EdgeTable edges = edgeTable;
+        edges.set(xs, xOffset, ys, yOffset, n);
+        int minX = Math.max(edges.getLeft(), clipX0);
+        int minY = Math.max(edges.getTop(), clipY0);
+        int maxX = Math.min(edges.getRight(), clipX1);
+        int maxY = Math.min(edges.getBottom(), clipY1);
+        if (minX >= maxX || minY >= maxY)
+            return;
+        markDirty(minX, minY, maxX, maxY);
+
+        // Walk the crossings of each row from left to right. With EVEN_ODD every crossing toggles
+        // between inside and outside, with NON_ZERO the directions of the crossed edges are summed.
+        boolean isEvenOdd = rule == FillRule.EVEN_ODD;
+        edges.start(minY);
+        for (int y = minY; y < maxY; y++) {
+            int winding = 0;
+            long start = 0;
+            for (int i = 0, count = edges.getCount(); i < count; i++) {
+                int previous = winding;
+                winding += isEvenOdd ? 1 : edges.getWinding(i);
+                boolean wasInside = isEvenOdd ? (previous & 1) != 0 : previous != 0;
+                boolean isInside = isEvenOdd ? (winding & 1) != 0 : winding != 0;
+                if (!wasInside && isInside) {
+                    start = edges.getX(i);
+                } else if (wasInside && !isInside) {
+                    long x0 = Math.max(start, minX);
+                    long x1 = Math.min(edges.getX(i), maxX);
+                    if (x0 < x1)
+                        fillSpan((int) x0 + y * width, (int) (x1 - x0), color);
+                }
+            }
+            edges.next();
+        }
+    }
+
+    /**
+     * This method is used to draw a horizontal line on the target buffer.
+     * The line is clipped once against the clip rectangle and then filled as a single span.
+     *
+     * @param x0    the x coordinate of the left end of the line
+     * @param x1    the x coordinate of the right end of the line
+     * @param y     the y coordinate of the line
+     * @param color the color of the line
+     */
+    private void drawHorizontalLine(int x0, int x1, int y, int color) {
+        if (y < clipY0 || y >= clipY1)
+            return;
+        x0 = Math.max(x0, clipX0);
+        x1 = Math.min(x1, clipX1 - 1);
+        if (x0 > x1)
+            return;
+        fillSpan(x0 + y * width, x1 - x0 + 1, color);
+    }
+
+    /**
+     * This method is used to fill a horizontal span of the target buffer with a color.
+     * The span must already be clipped against the target buffer.
+     * Opaque colors are written with a bulk fill, translucent colors are blended.
+     * Blend modes other than NORMAL are handed to the loop of the mode.
+     *
+     * @param offset the index of the first pixel of the span in the target buffer
+     * @param length the number of pixels in the span
+     * @param color  the color of the span
+     */
+    private void fillSpan(int offset, int length, int color) {
+        int alpha = (color >>> 24);
+        if (alpha == 0 && blendMode != BlendMode.REPLACE)
+            return;
+        if (blendMode != BlendMode.NORMAL) {
+            blendMode.fill(pixels, offset, length, color, globalAlphaFixed == -1 ? alpha : globalAlphaFixed);
+            return;
+        }
+        if (isAlphaEnabled && alpha < 0xff) {
+            blendSpan(offset, length, color, alpha);
+        } else if (length < 16) {
+            for (int i = offset, end = offset + length; i < end; i++)
+                pixels[i] = color | 0xff000000;
+        } else
+            Arrays.fill(pixels, offset, offset + length, color | 0xff000000);
+    }
+
+    /**
+     * This method is used to blend a translucent color over a horizontal span of the target buffer.
+     * The blend factors are computed once for the whole span.
+     *
+     * @param offset the index of the first pixel of the span in the target buffer
+     * @param length the number of pixels in the span
+     * @param color  the color to blend
+     * @param alpha  the alpha value of the color
+     */
+    private void blendSpan(int offset, int length, int color, int alpha) {
+        if (isFixedPointEnabled) {
+            BlendMode.NORMAL.fill(pixels, offset, length, color, globalAlphaFixed == -1 ? alpha : globalAlphaFixed);
+            return;
+        }
+        float alphaF = globalAlpha == -1 ? (float) alpha / 0xff : globalAlpha;
+        float inverseAlphaF = 1 - alphaF;
+        float red = alphaF * ((color >> 16) & 0xff);
+        float green = alphaF * ((color >> 8) & 0xff);
+        float blue = alphaF * (color & 0xff);
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int previousColor = pixels[i];
+            pixels[i] = 0xff000000 |
+                    (int) (inverseAlphaF * ((previousColor >> 16) & 0xff) + red) << 16 |
+                    (int) (inverseAlphaF * ((previousColor >> 8) & 0xff) + green) << 8 |
+                    (int) (inverseAlphaF * (previousColor & 0xff) + blue);
+        }
+    }
+
+    /**
+     * This method is used to draw a sprite on the target buffer.
+     * The sprite is clipped once against the clip rectangle and then drawn row by row.
+     * The rows of fully opaque sprites are copied, binary-alpha sprites only skip their transparent pixels,
+     * and only translucent sprites are blended, whenever the blend mode gives the same result.
+     *
+     * @param sprite the sprite to draw
+     * @param x      the x coordinate of the top left corner of the sprite
+     * @param y      the y coordinate of the top left corner of the sprite
+     */
+    public void drawSprite(Sprite sprite, int x, int y) {
+        if (sprite == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        }
+        if (commands != null) {
+            int a = record(CommandBuffer.SPRITE, sprite, x, y, x + sprite.getWidth(), y + sprite.getHeight());
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+            }
+            return;
+        }
+        int startX = Math.max(clipX0 - x, 0);
+        int startY = Math.max(clipY0 - y, 0);
+        int endX = Math.min(clipX1 - x, sprite.getWidth());
+        int endY = Math.min(clipY1 - y, sprite.getHeight());
+        if (startX >= endX || startY >= endY)
+            return;
+        markDirty(x + startX, y + startY, x + endX, y + endY);
+
+        int[] source = sprite.getPixels();
+        int sourceOffset = sprite.getOffset();
+        int sourceStride = sprite.getStride();
+        Opacity opacity = sprite.getOpacity();
+        if (opacity == Opacity.OPAQUE && canCopyOpaque()) {
+            for (int row = startY; row < endY; row++)
+                System.arraycopy(source, sourceOffset + startX + row * sourceStride, pixels, x + startX + (y + row) * width,
+                        endX - startX);
+            return;
+        }
+        if (sprite.getRuns() != null && blendMode != BlendMode.REPLACE) {
+            drawRuns(sprite, x, y, startX, startY, endX, endY);
+            return;
+        }
+        if (opacity == Opacity.BINARY && blendMode == BlendMode.NORMAL) {
+            for (int row = startY; row < endY; row++)
+                drawMaskedRow(x + startX + (y + row) * width, source, sourceOffset + startX + row * sourceStride, endX - startX);
+            return;
+        }
+        if (sprite.isPremultiplied()) {
+            for (int row = startY; row < endY; row++)
+                drawPremultipliedRow(x + startX + (y + row) * width, source, sourceOffset + startX + row * sourceStride,
+                        endX - startX);
+            return;
+        }
+        for (int row = startY; row < endY; row++)
+            drawRow(x + startX + (y + row) * width, source, sourceOffset + startX + row * sourceStride, endX - startX);
+    }
+
+    /**
+     * This method is used to draw a rectangle of a sprite on the target buffer.
+     *
+     * @param sprite       the sprite to draw from
+     * @param sourceX      the x coordinate of the rectangle in the sprite
+     * @param sourceY      the y coordinate of the rectangle in the sprite
+     * @param sourceWidth  the width of the rectangle
+     * @param sourceHeight the height of the rectangle
+     * @param x            the x coordinate of the top left corner of the rectangle on the target buffer
+     * @param y            the y coordinate of the top left corner of the rectangle on the target buffer
+     */
+    public void drawSprite(Sprite sprite, int sourceX, int sourceY, int sourceWidth, int sourceHeight, int x, int y) {
+        drawSprite(sprite, sourceX, sourceY, sourceWidth, sourceHeight, x, y, false, false);
+    }
+
+    /**
+     * This method is used to draw a rectangle of a sprite on the target buffer, optionally mirrored.
+     * The rectangle is clipped once against the sprite and the clip rectangle, and then drawn row by row
+     * with the same copy and blend loops as whole sprites. Mirroring only changes the direction the source rows
+     * and columns are walked in; mirrored rows are gathered backwards into the row buffer first.
+     * Parts of the rectangle outside the sprite are not drawn.
+     *
+     * @param sprite       the sprite to draw from
+     * @param sourceX      the x coordinate of the rectangle in the sprite
+     * @param sourceY      the y coordinate of the rectangle in the sprite
+     * @param sourceWidth  the width of the rectangle
+     * @param sourceHeight the height of the rectangle
+     * @param x            the x coordinate of the top left corner of the rectangle on the target buffer
+     * @param y            the y coordinate of the top left corner of the rectangle on the target buffer
+     * @param isFlippedX   true to mirror the rectangle horizontally
+     * @param isFlippedY   true to mirror the rectangle vertically
+     */
+    public void drawSprite(Sprite sprite, int sourceX, int sourceY, int sourceWidth, int sourceHeight, int x, int y,
+                           boolean isFlippedX, boolean isFlippedY) {
+        if (sprite == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        }
+        if (sourceWidth <= 0 || sourceHeight <= 0)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.SPRITE_REGION, sprite, x, y, x + sourceWidth, y + sourceHeight);
+            if (a >= 0) {
+                int[] data = commands.commands;
+                data[a] = sourceX;
+                data[a + 1] = sourceY;
+                data[a + 2] = sourceWidth;
+                data[a + 3] = sourceHeight;
+                data[a + 4] = x;
+                data[a + 5] = y;
+                data[a + 6] = (isFlippedX ? 1 : 0) | (isFlippedY ? 2 : 0);
+            }
+            return;
+        }
+        // The columns and rows of the rectangle that lie inside the sprite, moved to where they are drawn.
+        int insideX0 = Math.max(0, -sourceX), insideX1 = Math.min(sourceWidth, sprite.getWidth() - sourceX);
+        int insideY0 = Math.max(0, -sourceY), insideY1 = Math.min(sourceHeight, sprite.getHeight() - sourceY);
+        int startX = Math.max(isFlippedX ? sourceWidth - insideX1 : insideX0, clipX0 - x);
+        int endX = Math.min(isFlippedX ? sourceWidth - insideX0 : insideX1, clipX1 - x);
+        int startY = Math.max(isFlippedY ? sourceHeight - insideY1 : insideY0, clipY0 - y);
+        int endY = Math.min(isFlippedY ? sourceHeight - insideY0 : insideY1, clipY1 - y);
+        if (startX >= endX || startY >= endY)
+            return;
+        markDirty(x + startX, y + startY, x + endX, y + endY);
+
+        int[] source = sprite.getPixels();
+        int sourceStride = sprite.getStride();
+        Opacity opacity = sprite.getOpacity();
+        boolean isOpaque = opacity == Opacity.OPAQUE && canCopyOpaque();
+        boolean isMasked = opacity == Opacity.BINARY && blendMode == BlendMode.NORMAL;
+        boolean isPremultiplied = sprite.isPremultiplied();
+        int length = endX - startX;
+        if (isFlippedX && (rowBuffer == null || rowBuffer.length < length))
+            rowBuffer = new int[Math.max(length, width)];
+        int firstColumn = sourceX + (isFlippedX ? sourceWidth - 1 - startX : startX);
+        int firstRow = sourceY + (isFlippedY ? sourceHeight - 1 - startY : startY);
+        int rowStep = isFlippedY ? -sourceStride : sourceStride;
+        int sourceOffset = sprite.getOffset() + firstColumn + firstRow * sourceStride;
+        for (int index = x + startX + (y + startY) * width, last = index + (endY - startY) * width;
+             index < last; index += width, sourceOffset += rowStep) {
+            if (isFlippedX) {
+                for (int i = 0, j = sourceOffset; i < length; i++, j--)
+                    rowBuffer[i] = source[j];
+                drawSpriteRow(index, rowBuffer, 0, length, isOpaque, isMasked, isPremultiplied);
+            } else {
+                drawSpriteRow(index, source, sourceOffset, length, isOpaque, isMasked, isPremultiplied);
+            }
+        }
+    }
+
+    /**
+     * This method is used to draw a nine-slice sprite over a rectangle of any size.
+     * The corners keep their size, unless the rectangle is too small for them, in which case they are squeezed.
+     * Every slice is drawn straight from the pixels of the sprite row by row, without any intermediate sprite.
+     *
+     * @param slice  the nine-slice sprite to draw
+     * @param x      the x coordinate of the top left corner of the rectangle
+     * @param y      the y coordinate of the top left corner of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     */
+    public void drawNineSlice(NineSlice slice, int x, int y, int width, int height) {
+        if (slice == null) {
+            Debug.logError(getClass().getSimpleName() + " -> NineSlice instance can not be null!");
+            System.exit(-1);
+        }
+        if (width <= 0 || height <= 0)
+            return;
+        if (commands != null) {
+            int a = record(CommandBuffer.NINE_SLICE, slice, x, y, x + width, y + height);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = width;
+                commands.commands[a + 3] = height;
+            }
             return;
-        int currX = 0, currY = radius;
-        int decisionParameter = 3 - 2 * radius;
-        setPixel(x + currX, y + currY, color);
-        setPixel(x - currX, y + currY, color);
-        setPixel(x + currX, y - currY, color);
-        setPixel(x - currX, y - currY, color);
-        setPixel(x + currY, y + currX, color);
-        setPixel(x - currY, y + currX, color);
-        setPixel(x + currY, y - currX, color);
-        setPixel(x - currY, y - currX, color);
-        while (currY >= currX) {
-            currX++;
-            if (decisionParameter > 0) {
-                currY--;
-                decisionParameter = decisionParameter + 4 * (currX - currY) + 10;
-            } else
-                decisionParameter = decisionParameter + 4 * currX + 6;
-            setPixel(x + currX, y + currY, color);
-            setPixel(x - currX, y + currY, color);
-            setPixel(x + currX, y - currY, color);
-            setPixel(x - currX, y - currY, color);
-            setPixel(x + currY, y + currX, color);
-            setPixel(x - currY, y + currX, color);
-            setPixel(x + currY, y - currX, color);
-            setPixel(x - currY, y - currX, color);
+        }
+        Sprite sprite = slice.getSprite();
+        int left = slice.getLeft(), top = slice.getTop(), right = slice.getRight(), bottom = slice.getBottom();
+        int targetLeft = left, targetTop = top, targetRight = right, targetBottom = bottom;
+        if (left + right > width) {
+            targetLeft = left * width / (left + right);
+            targetRight = width - targetLeft;
+        }
+        if (top + bottom > height) {
+            targetTop = top * height / (top + bottom);
+            targetBottom = height - targetTop;
+        }
+        for (int row = 0; row < 3; row++) {
+            int sourceY0 = getSliceEdge(row, 0, top, bottom, sprite.getHeight());
+            int sourceY1 = getSliceEdge(row + 1, 0, top, bottom, sprite.getHeight());
+            int y0 = getSliceEdge(row, y, targetTop, targetBottom, y + height);
+            int y1 = getSliceEdge(row + 1, y, targetTop, targetBottom, y + height);
+            for (int column = 0; column < 3; column++) {
+                int sourceX0 = getSliceEdge(column, 0, left, right, sprite.getWidth());
+                int sourceX1 = getSliceEdge(column + 1, 0, left, right, sprite.getWidth());
+                int x0 = getSliceEdge(column, x, targetLeft, targetRight, x + width);
+                int x1 = getSliceEdge(column + 1, x, targetLeft, targetRight, x + width);
+                drawRegion(sprite, sourceX0, sourceY0, sourceX1 - sourceX0, sourceY1 - sourceY0,
+                        x0, y0, x1 - x0, y1 - y0, slice.isTilingEnabled() && (row == 1 || column == 1));
+            }
         }
     }
 
     /**
-     * This method is used to draw a circle on the target buffer.
+     * This method is used to find one of the four edges that split a span into three slices.
      *
-     * @param x      the x coordinate of the circle
-     * @param y      the y coordinate of the circle
-     * @param radius the radius of the circle
-     * @param color  the color of the circle
+     * @param index the index of the edge, from 0 to 3
+     * @param start the start of the span
+     * @param near  the size of the first slice
+     * @param far   the size of the last slice
+     * @param end   the end of the span
+     * @return the position of the edge
      */
-    public void fillCircle(int x, int y, int radius, int color) {
-        if (radius <= 0)
+    private static int getSliceEdge(int index, int start, int near, int far, int end) {
+        switch (index) {
+            case 0:
+                return start;
+            case 1:
+                return start + near;
+            case 2:
+                return end - far;
+            default:
+                return end;
+        }
+    }
+
+    /**
+     * This method is used to draw a rectangle of a sprite over a rectangle of the target buffer,
+     * either stretched with nearest-neighbor sampling or tiled from the top left corner.
+     * Rows that need no resampling are drawn straight from the sprite, stretched rows are gathered once
+     * into the row buffer and reused for every target row that samples the same source row.
+     *
+     * @param sprite       the sprite to draw from
+     * @param sourceX      the x coordinate of the rectangle in the sprite
+     * @param sourceY      the y coordinate of the rectangle in the sprite
+     * @param sourceWidth  the width of the rectangle in the sprite
+     * @param sourceHeight the height of the rectangle in the sprite
+     * @param x            the x coordinate of the rectangle in the target buffer
+     * @param y            the y coordinate of the rectangle in the target buffer
+     * @param regionWidth  the width of the rectangle in the target buffer
+     * @param regionHeight the height of the rectangle in the target buffer
+     * @param isTiled      true to repeat the source rectangle, false to stretch it
+     */
+    private void drawRegion(Sprite sprite, int sourceX, int sourceY, int sourceWidth, int sourceHeight,
+                            int x, int y, int regionWidth, int regionHeight, boolean isTiled) {
+        int startX = Math.max(clipX0 - x, 0);
+        int startY = Math.max(clipY0 - y, 0);
+        int endX = Math.min(clipX1 - x, regionWidth);
+        int endY = Math.min(clipY1 - y, regionHeight);
+        if (sourceWidth <= 0 || sourceHeight <= 0 || startX >= endX || startY >= endY)
             return;
-        int currX = 0, currY = radius;
-        int decisionParameter = 3 - 2 * radius;
-        drawLine(x + currY, y + currX, x - currY, y + currX, color);
-        while (currY > currX) {
-            currX++;
-            if (currX == currY)
-                break;
-            if (decisionParameter > 0) {
-                currY--;
-                drawLine(x + currX, y + currY, x - currX, y + currY, color);
-                drawLine(x + currX, y - currY, x - currX, y - currY, color);
-                decisionParameter = decisionParameter + 4 * (currX - currY) + 10;
-            } else
-                decisionParameter = decisionParameter + 4 * currX + 6;
+        markDirty(x + startX, y + startY, x + endX, y + endY);
 
-            if (currY > currX) {
-                drawLine(x + currY, y + currX, x - currY, y + currX, color);
-                drawLine(x + currY, y - currX, x - currY, y - currX, color);
+        int[] source = sprite.getPixels();
+        int sourceOffset = sprite.getOffset();
+        int sourceStride = sprite.getStride();
+        Opacity opacity = sprite.getOpacity();
+        boolean isOpaque = opacity == Opacity.OPAQUE && canCopyOpaque();
+        boolean isMasked = opacity == Opacity.BINARY && blendMode == BlendMode.NORMAL;
+        boolean isPremultiplied = sprite.isPremultiplied();
+        boolean isStretched = !isTiled && regionWidth != sourceWidth;
+        int length = endX - startX;
+        if (isStretched && (rowBuffer == null || rowBuffer.length < length))
+            rowBuffer = new int[Math.max(length, width)];
+        int bufferedRow = -1;
+        for (int row = startY; row < endY; row++) {
+            int sourceRow;
+            if (isTiled)
+                sourceRow = sourceY + row % sourceHeight;
+            else
+                sourceRow = sourceY + (int) ((2L * row + 1) * sourceHeight / (2L * regionHeight));
+            int rowOffset = sourceOffset + sourceRow * sourceStride;
+            int index = x + startX + (y + row) * width;
+            if (isStretched) {
+                if (sourceRow != bufferedRow) {
+                    // Sample at the centers of the target pixels, stepping the exact source column
+                    // as a quotient and a remainder so that no pixel is divided.
+                    long denominator = 2L * regionWidth;
+                    long numerator = (2L * startX + 1) * sourceWidth;
+                    int column = sourceX + (int) (numerator / denominator);
+                    long remainder = numerator % denominator;
+                    int quotient = (int) (2L * sourceWidth / denominator);
+                    long carry = 2L * sourceWidth % denominator;
+                    for (int i = 0; i < length; i++) {
+                        rowBuffer[i] = source[rowOffset + column];
+                        column += quotient;
+                        remainder += carry;
+                        if (remainder >= denominator) {
+                            remainder -= denominator;
+                            column++;
+                        }
+                    }
+                    bufferedRow = sourceRow;
+                }
+                drawSpriteRow(index, rowBuffer, 0, length, isOpaque, isMasked, isPremultiplied);
+            } else if (!isTiled) {
+                drawSpriteRow(index, source, rowOffset + sourceX + startX, length, isOpaque, isMasked,
+                        isPremultiplied);
+            } else {
+                for (int column = startX; column < endX; ) {
+                    int tileColumn = column % sourceWidth;
+                    int tileLength = Math.min(sourceWidth - tileColumn, endX - column);
+                    drawSpriteRow(index + column - startX, source, rowOffset + sourceX + tileColumn, tileLength,
+                            isOpaque, isMasked, isPremultiplied);
+                    column += tileLength;
+                }
             }
         }
     }
 
     /**
-     * This method is used to draw a triangle on the target buffer.
+     * This method is used to draw a row of sprite colors with the cheapest kernel that gives the same result.
      *
-     * @param x0    the x coordinate of the first point of the triangle
-     * @param y0    the y coordinate of the first point of the triangle
-     * @param x1    the x coordinate of the second point of the triangle
-     * @param y1    the y coordinate of the second point of the triangle
-     * @param x2    the x coordinate of the third point of the triangle
-     * @param y2    the y coordinate of the third point of the triangle
-     * @param color the color of the triangle
+     * @param offset          the index of the first pixel of the span in the target buffer
+     * @param source          the source colors
+     * @param sourceOffset    the index of the first source color
+     * @param length          the number of pixels in the span
+     * @param isOpaque        true if the colors are opaque and can be copied
+     * @param isMasked        true if the colors are opaque or transparent and can be copied or skipped
+     * @param isPremultiplied true if the colors are premultiplied
      */
-    public void drawTriangle(int x0, int y0, int x1, int y1, int x2, int y2, int color) {
-        drawLine(x0, y0, x1, y1, color);
-        drawLine(x1, y1, x2, y2, color);
-        drawLine(x0, y0, x2, y2, color);
+    private void drawSpriteRow(int offset, int[] source, int sourceOffset, int length, boolean isOpaque,
+                               boolean isMasked, boolean isPremultiplied) {
+        if (isOpaque)
+            System.arraycopy(source, sourceOffset, pixels, offset, length);
+        else if (isMasked)
+            drawMaskedRow(offset, source, sourceOffset, length);
+        else if (isPremultiplied)
+            drawPremultipliedRow(offset, source, sourceOffset, length);
+        else
+            drawRow(offset, source, sourceOffset, length);
     }
 
     /**
-     * This method is used to fill the bottom part of a triangle on the target buffer.
+     * This method is used to draw a sprite on the target buffer with its current rotation and scale.
+     * Only the part of the transformed bounds that lies inside the clip rectangle is visited.
      *
-     * @param x0    the x coordinate of the first point of the triangle
-     * @param y0    the y coordinate of the first point of the triangle
-     * @param x1    the x coordinate of the second point of the triangle
-     * @param y1    the y coordinate of the second point of the triangle
-     * @param x2    the x coordinate of the third point of the triangle
-     * @param y2    the y coordinate of the third point of the triangle
-     * @param color the color of the triangle
+     * @param sprite the sprite to draw
+     * @param x      the x coordinate of the origin of the sprite
+     * @param y      the y coordinate of the origin of the sprite
+     */
+    public void drawSpriteTransformed(Sprite sprite, int x, int y) {
+        if (sprite == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        }
+        if (commands != null) {
+            int a = record(CommandBuffer.SPRITE_TRANSFORMED, sprite,
+                    x + sprite.getTransformedStartX(), y + sprite.getTransformedStartY(),
+                    x + sprite.getTransformedEndX(), y + sprite.getTransformedEndY());
+            if (a >= 0) {
+                int[] data = commands.commands;
+                data[a] = x;
+                data[a + 1] = y;
+                data[a + 2] = Float.floatToRawIntBits(sprite.getOriginX());
+                data[a + 3] = Float.floatToRawIntBits(sprite.getOriginY());
+                data[a + 4] = Float.floatToRawIntBits(sprite.getScaleX());
+                data[a + 5] = Float.floatToRawIntBits(sprite.getScaleY());
+                data[a + 6] = Float.floatToRawIntBits(sprite.getCos());
+                data[a + 7] = Float.floatToRawIntBits(sprite.getSin());
+                data[a + 8] = sprite.getTransformedStartX();
+                data[a + 9] = sprite.getTransformedStartY();
+                data[a + 10] = sprite.getTransformedEndX();
+                data[a + 11] = sprite.getTransformedEndY();
+            }
+            return;
+        }
+        markDirty(x + sprite.getTransformedStartX(), y + sprite.getTransformedStartY(),
+                x + sprite.getTransformedEndX(), y + sprite.getTransformedEndY());
+        drawTransformed(sprite, x, y, sprite.getOriginX(), sprite.getOriginY(), sprite.getScaleX(),
+                sprite.getScaleY(), sprite.getCos(), sprite.getSin(), sprite.getTransformedStartX(),
+                sprite.getTransformedStartY(), sprite.getTransformedEndX(), sprite.getTransformedEndY());
+    }
+
+    /**
+     * This method is used to draw a sprite on the target buffer with an explicit rotation and scale.
+     * The transformed bounds are clipped against the clip rectangle first, and sprites drawn at half their size
+     * or smaller are sampled from the matching mipmap level. On every row the range of pixels
+     * that map inside the source is solved for directly, and the source coordinates are stepped across it
+     * in fixed point, so no pixel is divided or tested against the source bounds.
+     *
+     * @param sprite            the sprite to draw
+     * @param x                 the x coordinate of the origin of the sprite
+     * @param y                 the y coordinate of the origin of the sprite
+     * @param originX           the normalized x offset of the origin of the sprite
+     * @param originY           the normalized y offset of the origin of the sprite
+     * @param scaleX            the x scale of the sprite
+     * @param scaleY            the y scale of the sprite
+     * @param cos               the cosine of the rotation of the sprite
+     * @param sin               the sine of the rotation of the sprite
+     * @param transformedStartX the starting x coordinate of the transformed sprite, relative to its origin
+     * @param transformedStartY the starting y coordinate of the transformed sprite, relative to its origin
+     * @param transformedEndX   the ending x coordinate of the transformed sprite, relative to its origin
+     * @param transformedEndY   the ending y coordinate of the transformed sprite, relative to its origin
      */
-    private void fillBottomFlatTriangle(int x0, int y0, int x1, int y1, int x2, int y2, int color) {
-        float invslope1 = (float) (x1 - x0) / (float) (y1 - y0);
-        float invslope2 = (float) (x2 - x0) / (float) (y2 - y0);
+    private void drawTransformed(Sprite sprite, int x, int y, float originX, float originY, float scaleX,
+                                 float scaleY, float cos, float sin, int transformedStartX,
+                                 int transformedStartY, int transformedEndX, int transformedEndY) {
+        int startX = Math.max(transformedStartX, clipX0 - x);
+        int startY = Math.max(transformedStartY, clipY0 - y);
+        int endX = Math.min(transformedEndX, clipX1 - x);
+        int endY = Math.min(transformedEndY, clipY1 - y);
+        if (startX >= endX || startY >= endY)
+            return;
+        if (isFilteringEnabled || sprite.isFilteringEnabled()) {
+            resampleFiltered(this, pixels, width, sprite, x, y, originX, originY, scaleX, scaleY, cos, sin,
+                    startX, startY, endX, endY);
+            return;
+        }
+        Sprite mipmap = sprite.getMipmap(Math.max(Math.abs(scaleX), Math.abs(scaleY)));
+        if (mipmap != sprite) {
+            // The normalized origin is the same on every level, only the scale has to grow with the shrink.
+            scaleX *= (float) mipmap.getWidth() / sprite.getWidth();
+            scaleY *= (float) mipmap.getHeight() / sprite.getHeight();
+            sprite = mipmap;
+        }
+        if (sin == 0) {
+            drawScaled(sprite, x, y, originX, originY, scaleX, scaleY, cos, startX, startY, endX, endY);
+            return;
+        }
 
-        float curx1 = x0;
-        float curx2 = x0;
+        int[] source = sprite.getPixels();
+        int sourceWidth = sprite.getWidth();
+        int sourceHeight = sprite.getHeight();
+        int sourceOffset = sprite.getOffset();
+        int sourceStride = sprite.getStride();
+        double pivotX = sourceWidth * originX;
+        double pivotY = sourceHeight * originY;
+        boolean isPremultiplied = sprite.isPremultiplied();
+        Opacity opacity = sprite.getOpacity();
+        boolean canCopy = opacity != Opacity.TRANSLUCENT && blendMode == BlendMode.NORMAL;
 
-        for (int scanlineY = y0; scanlineY <= y1; scanlineY++) {
-            drawLine((int) curx1, scanlineY, (int) curx2, scanlineY, color);
-            curx1 += invslope1;
-            curx2 += invslope2;
+        // The source coordinates change by a constant amount from one destination pixel to the next,
+        // so they are stepped in 16.16 fixed point, and only the pixels that map inside the source are visited.
+        long stepU = Math.round((double) cos / scaleX * 0x10000);
+        long stepV = Math.round((double) sin / scaleY * 0x10000);
+        long limitU = (long) sourceWidth << 16;
+        long limitV = (long) sourceHeight << 16;
+        for (int currY = startY; currY < endY; currY++) {
+            long u = (long) Math.floor(((startX * (double) cos - currY * (double) sin) / scaleX + pivotX) * 0x10000);
+            long v = (long) Math.floor(((startX * (double) sin + currY * (double) cos) / scaleY + pivotY) * 0x10000);
+            long first = Math.max(0, Math.max(getFirstStep(u, stepU, limitU), getFirstStep(v, stepV, limitV)));
+            long end = Math.min(endX - startX, Math.min(getEndStep(u, stepU, limitU), getEndStep(v, stepV, limitV)));
+            if (first >= end)
+                continue;
+            u += first * stepU;
+            v += first * stepV;
+            int index = x + startX + (int) first + (y + currY) * width;
+            for (int last = index + (int) (end - first); index < last; index++, u += stepU, v += stepV) {
+                int color = source[sourceOffset + (int) (u >> 16) + (int) (v >> 16) * sourceStride];
+                if (canCopy) {
+                    if (color >>> 24 != 0)
+                        pixels[index] = color;
+                } else if (isPremultiplied)
+                    plotPremultiplied(index, color);
+                else
+                    plot(index, color);
+            }
         }
     }
 
     /**
-     * This method is used to fill the top part of a triangle on the target buffer.
+     * This method is used to draw a sprite that is scaled, and possibly turned upside down, but not rotated otherwise.
+     * Every target column samples the same source column on every row, so the source columns are stepped
+     * in fixed point once per call, exactly like the rotated blit would, and every row only gathers them.
+     * Target rows that sample the same source row reuse the gathered row, which is then drawn with the row kernels.
      *
-     * @param x0    the x coordinate of the first point of the triangle
-     * @param y0    the y coordinate of the first point of the triangle
-     * @param x1    the x coordinate of the second point of the triangle
-     * @param y1    the y coordinate of the second point of the triangle
-     * @param x2    the x coordinate of the third point of the triangle
-     * @param y2    the y coordinate of the third point of the triangle
-     * @param color the color of the triangle
+     * @param sprite  the sprite to draw
+     * @param x       the x coordinate of the origin of the sprite
+     * @param y       the y coordinate of the origin of the sprite
+     * @param originX the normalized x offset of the origin of the sprite
+     * @param originY the normalized y offset of the origin of the sprite
+     * @param scaleX  the x scale of the sprite
+     * @param scaleY  the y scale of the sprite
+     * @param cos     the cosine of the rotation of the sprite, either 1 or -1
+     * @param startX  the first column to draw, relative to the origin, already clipped
+     * @param startY  the first row to draw, relative to the origin, already clipped
+     * @param endX    the column after the last column to draw, relative to the origin, already clipped
+     * @param endY    the row after the last row to draw, relative to the origin, already clipped
      */
-    private void fillTopFlatTriangle(int x0, int y0, int x1, int y1, int x2, int y2, int color) {
-        float invslope1 = (float) (x2 - x0) / (float) (y2 - y0);
-        float invslope2 = (float) (x2 - x1) / (float) (y2 - y1);
+    private void drawScaled(Sprite sprite, int x, int y, float originX, float originY, float scaleX, float scaleY,
+                            float cos, int startX, int startY, int endX, int endY) {
+        int[] source = sprite.getPixels();
+        int sourceWidth = sprite.getWidth();
+        int sourceHeight = sprite.getHeight();
+        int sourceOffset = sprite.getOffset();
+        int sourceStride = sprite.getStride();
+        double pivotX = sourceWidth * originX;
+        double pivotY = sourceHeight * originY;
 
-        float curx1 = x2;
-        float curx2 = x2;
+        long stepU = Math.round((double) cos / scaleX * 0x10000);
+        long u = (long) Math.floor((startX * (double) cos / scaleX + pivotX) * 0x10000);
+        long limitU = (long) sourceWidth << 16;
+        long first = Math.max(0, getFirstStep(u, stepU, limitU));
+        long end = Math.min(endX - startX, getEndStep(u, stepU, limitU));
+        if (first >= end)
+            return;
+        int length = (int) (end - first);
+        if (columnBuffer == null || columnBuffer.length < length) {
+            columnBuffer = new int[Math.max(length, width)];
+            rowBuffer = new int[Math.max(length, width)];
+        } else if (rowBuffer == null || rowBuffer.length < length) {
+            rowBuffer = new int[Math.max(length, width)];
+        }
+        u += first * stepU;
+        for (int i = 0; i < length; i++, u += stepU)
+            columnBuffer[i] = (int) (u >> 16);
 
-        for (int scanlineY = y2; scanlineY > y0; scanlineY--) {
-            drawLine((int) curx1, scanlineY, (int) curx2, scanlineY, color);
-            curx1 -= invslope1;
-            curx2 -= invslope2;
+        Opacity opacity = sprite.getOpacity();
+        boolean isOpaque = opacity == Opacity.OPAQUE && canCopyOpaque();
+        boolean isMasked = opacity == Opacity.BINARY && blendMode == BlendMode.NORMAL;
+        boolean isPremultiplied = sprite.isPremultiplied();
+        long limitV = (long) sourceHeight << 16;
+        int bufferedRow = -1;
+        for (int currY = startY; currY < endY; currY++) {
+            long v = (long) Math.floor((currY * (double) cos / scaleY + pivotY) * 0x10000);
+            if (v < 0 || v >= limitV)
+                continue;
+            int sourceRow = (int) (v >> 16);
+            if (sourceRow != bufferedRow) {
+                int rowOffset = sourceOffset + sourceRow * sourceStride;
+                for (int i = 0; i < length; i++)
+                    rowBuffer[i] = source[rowOffset + columnBuffer[i]];
+                bufferedRow = sourceRow;
+            }
+            drawSpriteRow(x + startX + (int) first + (y + currY) * width, rowBuffer, 0, length, isOpaque, isMasked,
+                    isPremultiplied);
         }
     }
 
     /**
-     * This method is used to fill a triangle on the target buffer.
+     * This method is used to resample a sprite with its current rotation and scale into a pixel buffer
+     * with bilinear filtering, like drawing it with filtering enabled and the REPLACE blend mode would.
+     * No renderer is created for the buffer, so this can be used to bake filtered copies of sprites.
+     * Only the part of the transformed bounds that lies inside the buffer is written, and the colors are
+     * stored premultiplied if the sprite is premultiplied.
      *
-     * @param x0    the x coordinate of the first point of the triangle
-     * @param y0    the y coordinate of the first point of the triangle
-     * @param x1    the x coordinate of the second point of the triangle
-     * @param y1    the y coordinate of the second point of the triangle
-     * @param x2    the x coordinate of the third point of the triangle
-     * @param y2    the y coordinate of the third point of the triangle
-     * @param color the color of the triangle
+     * @param sprite            the sprite to resample
+     * @param destination       the pixel buffer to write into
+     * @param destinationWidth  the width of the pixel buffer
+     * @param destinationHeight the height of the pixel buffer
+     * @param x                 the x coordinate of the origin of the sprite in the pixel buffer
+     * @param y                 the y coordinate of the origin of the sprite in the pixel buffer
      */
-    public void fillTriangle(int x0, int y0, int x1, int y1, int x2, int y2, int color) {
-        if (y0 > y1) {
-            y0 = y0 ^ y1 ^ (y1 = y0);
-            x0 = x0 ^ x1 ^ (x1 = x0);
+    public static void resampleTransformed(Sprite sprite, int[] destination, int destinationWidth,
+                                           int destinationHeight, int x, int y) {
+        if (sprite == null || destination == null) {
+            Debug.logError(Renderer.class.getSimpleName() + " -> Sprite and destination can not be null!");
+            System.exit(-1);
         }
-        if (y1 > y2) {
-            y1 = y1 ^ y2 ^ (y2 = y1);
-            x1 = x1 ^ x2 ^ (x2 = x1);
+        if (destinationWidth < 0 || destinationHeight < 0 || destination.length < destinationWidth * destinationHeight) {
+            Debug.logError(Renderer.class.getSimpleName() + " -> Destination is smaller than its dimensions!");
+            System.exit(-1);
         }
-        if (y0 > y1) {
-            y0 = y0 ^ y1 ^ (y1 = y0);
-            x0 = x0 ^ x1 ^ (x1 = x0);
+        int startX = Math.max(sprite.getTransformedStartX(), -x);
+        int startY = Math.max(sprite.getTransformedStartY(), -y);
+        int endX = Math.min(sprite.getTransformedEndX(), destinationWidth - x);
+        int endY = Math.min(sprite.getTransformedEndY(), destinationHeight - y);
+        if (startX >= endX || startY >= endY)
+            return;
+        resampleFiltered(null, destination, destinationWidth, sprite, x, y, sprite.getOriginX(), sprite.getOriginY(),
+                sprite.getScaleX(), sprite.getScaleY(), sprite.getCos(), sprite.getSin(), startX, startY, endX, endY);
+    }
+
+    /**
+     * This method is used to draw a rotated and scaled sprite with bilinear filtering.
+     * Sprites drawn at half their size or smaller are sampled from the matching mipmap level.
+     * Every destination pixel blends the four source pixels around the point it maps to, weighted in 8-bit
+     * fixed point, with pixels outside the sprite counting as transparent, which also smooths its edges.
+     * Colors are interpolated premultiplied so that transparent neighbors do not darken the result.
+     * Without a renderer the colors replace the destination pixels, kept premultiplied only if the sprite is.
+     *
+     * @param renderer         the renderer that plots the colors, or null to store them directly
+     * @param destination      the pixel buffer to draw into
+     * @param destinationWidth the width of the pixel buffer
+     * @param sprite           the sprite to draw
+     * @param x                the x coordinate of the origin of the sprite
+     * @param y                the y coordinate of the origin of the sprite
+     * @param originX          the normalized x offset of the origin of the sprite
+     * @param originY          the normalized y offset of the origin of the sprite
+     * @param scaleX           the x scale of the sprite
+     * @param scaleY           the y scale of the sprite
+     * @param cos              the cosine of the rotation of the sprite
+     * @param sin              the sine of the rotation of the sprite
+     * @param startX           the first column to draw, relative to the origin, already clipped
+     * @param startY           the first row to draw, relative to the origin, already clipped
+     * @param endX             the column after the last column to draw, relative to the origin, already clipped
+     * @param endY             the row after the last row to draw, relative to the origin, already clipped
+     */
+    private static void resampleFiltered(Renderer renderer, int[] destination, int destinationWidth, Sprite sprite,
+                                         int x, int y, float originX, float originY, float scaleX, float scaleY,
+                                         float cos, float sin, int startX, int startY, int endX, int endY) {
+        Sprite mipmap = sprite.getMipmap(Math.max(Math.abs(scaleX), Math.abs(scaleY)));
+        if (mipmap != sprite) {
+            scaleX *= (float) mipmap.getWidth() / sprite.getWidth();
+            scaleY *= (float) mipmap.getHeight() / sprite.getHeight();
+            sprite = mipmap;
         }
+        int[] source = sprite.getPixels();
+        int sourceWidth = sprite.getWidth();
+        int sourceHeight = sprite.getHeight();
+        int sourceOffset = sprite.getOffset();
+        int sourceStride = sprite.getStride();
+        double pivotX = sourceWidth * originX;
+        double pivotY = sourceHeight * originY;
+        boolean isPremultiplied = sprite.isPremultiplied();
 
-        if (y1 == y2) {
-            fillBottomFlatTriangle(x0, y0, x1, y1, x2, y2, color);
-        } else if (y0 == y1) {
-            fillTopFlatTriangle(x0, y0, x1, y1, x2, y2, color);
-        } else {
-            int x3 = (int) (x0 + ((float) (y1 - y0) / (float) (y2 - y0)) * (x2 - x0));
-            fillBottomFlatTriangle(x0, y0, x1, y1, x3, y1, color);
-            fillTopFlatTriangle(x1, y1, x3, y1, x2, y2, color);
+        // Pixel centers are at half coordinates, so the four neighbors of u start at u - 0.5.
+        // A point contributes to the result as long as one of its neighbors is inside the sprite.
+        long stepU = Math.round((double) cos / scaleX * 0x10000);
+        long stepV = Math.round((double) sin / scaleY * 0x10000);
+        long limitU = (long) (sourceWidth + 1) << 16;
+        long limitV = (long) (sourceHeight + 1) << 16;
+        for (int currY = startY; currY < endY; currY++) {
+            long u = (long) Math.floor(((startX * (double) cos - currY * (double) sin) / scaleX + pivotX) * 0x10000)
+                    + 0x8000;
+            long v = (long) Math.floor(((startX * (double) sin + currY * (double) cos) / scaleY + pivotY) * 0x10000)
+                    + 0x8000;
+            long first = Math.max(0, Math.max(getFirstStep(u, stepU, limitU), getFirstStep(v, stepV, limitV)));
+            long end = Math.min(endX - startX, Math.min(getEndStep(u, stepU, limitU), getEndStep(v, stepV, limitV)));
+            if (first >= end)
+                continue;
+            u += first * stepU;
+            v += first * stepV;
+            int index = x + startX + (int) first + (y + currY) * destinationWidth;
+            for (int last = index + (int) (end - first); index < last; index++, u += stepU, v += stepV) {
+                int u1 = (int) (u >> 16), v1 = (int) (v >> 16);
+                int u0 = u1 - 1, v0 = v1 - 1;
+                int weightU = (int) (u >> 8) & 0xff, weightV = (int) (v >> 8) & 0xff;
+                boolean isInsideU0 = u0 >= 0, isInsideU1 = u1 < sourceWidth;
+                int top = 0, bottom = 0;
+                if (v0 >= 0) {
+                    int row = sourceOffset + v0 * sourceStride;
+                    top = interpolate(isInsideU0 ? premultiply(source[row + u0], isPremultiplied) : 0,
+                            isInsideU1 ? premultiply(source[row + u1], isPremultiplied) : 0, weightU);
+                }
+                if (v1 < sourceHeight) {
+                    int row = sourceOffset + v1 * sourceStride;
+                    bottom = interpolate(isInsideU0 ? premultiply(source[row + u0], isPremultiplied) : 0,
+                            isInsideU1 ? premultiply(source[row + u1], isPremultiplied) : 0, weightU);
+                }
+                int color = interpolate(top, bottom, weightV);
+                if (renderer == null)
+                    destination[index] = isPremultiplied ? color : BlendMode.unpremultiply(color);
+                else if (isPremultiplied)
+                    renderer.plotPremultiplied(index, color);
+                else
+                    renderer.plot(index, BlendMode.unpremultiply(color));
+            }
+        }
+    }
+
+    /**
+     * This method is used to premultiply a color by its alpha, unless it already is.
+     *
+     * @param color           the color
+     * @param isPremultiplied the flag to check if the color is already premultiplied
+     * @return the premultiplied color
+     */
+    private static int premultiply(int color, boolean isPremultiplied) {
+        return isPremultiplied ? color : BlendMode.premultiply(color);
+    }
+
+    /**
+     * This method is used to interpolate linearly between two colors, all four channels at once.
+     *
+     * @param color0 the color at weight 0
+     * @param color1 the color at weight 256
+     * @param weight the weight of the second color, in the range 0 to 255
+     * @return the interpolated color
+     */
+    private static int interpolate(int color0, int color1, int weight) {
+        int inverse = 0x100 - weight;
+        int redBlue = ((color0 & 0xff00ff) * inverse + (color1 & 0xff00ff) * weight) >>> 8;
+        int alphaGreen = ((color0 >>> 8) & 0xff00ff) * inverse + ((color1 >>> 8) & 0xff00ff) * weight;
+        return (redBlue & 0xff00ff) | (alphaGreen & 0xff00ff00);
+    }
+
+    /**
+     * This method is used to find the first step at which a stepped fixed-point coordinate is inside a range.
+     *
+     * @param start the coordinate at step 0
+     * @param step  the change of the coordinate per step
+     * @param limit the end of the range, which starts at 0, exclusive
+     * @return the first step at which the coordinate is inside the range, if it ever is
+     */
+    private static long getFirstStep(long start, long step, long limit) {
+        if (step > 0)
+            return -Math.floorDiv(start, step);
+        if (step < 0)
+            return Math.floorDiv(limit - start, step) + 1;
+        return start >= 0 && start < limit ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    /**
+     * This method is used to find the step after the last step at which a stepped fixed-point coordinate
+     * is inside a range.
+     *
+     * @param start the coordinate at step 0
+     * @param step  the change of the coordinate per step
+     * @param limit the end of the range, which starts at 0, exclusive
+     * @return the step after the last step at which the coordinate is inside the range, if it ever is
+     */
+    private static long getEndStep(long start, long step, long limit) {
+        if (step > 0)
+            return -Math.floorDiv(start - limit, step);
+        if (step < 0)
+            return Math.floorDiv(start, -step) + 1;
+        return start >= 0 && start < limit ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    /**
+     * This method is used to draw a row of source colors on a horizontal span of the target buffer.
+     * The span must already be clipped against the clip rectangle.
+     *
+     * @param offset       the index of the first pixel of the span in the target buffer
+     * @param source       the source colors
+     * @param sourceOffset the index of the first source color
+     * @param length       the number of pixels in the span
+     */
+    private void drawRow(int offset, int[] source, int sourceOffset, int length) {
+        if (blendMode != BlendMode.NORMAL)
+            blendMode.blendRow(pixels, offset, source, sourceOffset, length, globalAlphaFixed);
+        else if (!isAlphaEnabled)
+            copyRow(offset, source, sourceOffset, length);
+        else if (isFixedPointEnabled)
+            BlendMode.NORMAL.blendRow(pixels, offset, source, sourceOffset, length, globalAlphaFixed);
+        else
+            blendRow(offset, source, sourceOffset, length);
+    }
+
+    /**
+     * This method is used to check if opaque pixels are drawn unchanged with the current settings,
+     * so that they can be copied instead of blended.
+     * Opaque pixels keep their color with the NORMAL blend mode whether a global alpha is set or not.
+     *
+     * @return true if opaque pixels can be copied, false otherwise
+     */
+    private boolean canCopyOpaque() {
+        return blendMode == BlendMode.REPLACE || blendMode == BlendMode.NORMAL;
+    }
+
+    /**
+     * This method is used to draw a row of source colors whose alpha is either 0 or 255 on the target buffer.
+     * Opaque colors are copied and transparent ones are skipped.
+     *
+     * @param offset       the index of the first pixel of the span in the target buffer
+     * @param source       the source colors
+     * @param sourceOffset the index of the first source color
+     * @param length       the number of pixels in the span
+     */
+    private void drawMaskedRow(int offset, int[] source, int sourceOffset, int length) {
+        for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+            int color = source[j];
+            if (color >>> 24 != 0)
+                pixels[i] = color;
+        }
+    }
+
+    /**
+     * This method is used to draw the clipped part of a run-length encoded sprite on the target buffer.
+     * Transparent runs are skipped, opaque runs are copied when the blend mode would copy them anyway,
+     * and every other run is drawn like a row of a sprite that is not encoded.
+     *
+     * @param sprite the sprite to draw
+     * @param x      the x coordinate of the sprite
+     * @param y      the y coordinate of the sprite
+     * @param startX the first column of the sprite to draw
+     * @param startY the first row of the sprite to draw
+     * @param endX   the column after the last column of the sprite to draw
+     * @param endY   the row after the last row of the sprite to draw
+     */
+    private void drawRuns(Sprite sprite, int x, int y, int startX, int startY, int endX, int endY) {
+        int[] source = sprite.getPixels();
+        int[] runs = sprite.getRuns();
+        int sourceOffset = sprite.getOffset();
+        int sourceStride = sprite.getStride();
+        boolean isPremultiplied = sprite.isPremultiplied();
+        boolean canCopy = canCopyOpaque();
+        for (int row = startY; row < endY; row++) {
+            int offset = x + (y + row) * width;
+            int sourceRow = sourceOffset + row * sourceStride;
+            int column = 0;
+            for (int i = runs[row], last = runs[row + 1]; i < last && column < endX; i++) {
+                int run = runs[i];
+                int from = Math.max(column, startX);
+                column += run & Sprite.RUN_LENGTH_MASK;
+                int to = Math.min(column, endX);
+                int type = run >>> 30;
+                if (from >= to || type == Sprite.RUN_TRANSPARENT)
+                    continue;
+                if (type == Sprite.RUN_OPAQUE && canCopy)
+                    System.arraycopy(source, sourceRow + from, pixels, offset + from, to - from);
+                else if (isPremultiplied)
+                    drawPremultipliedRow(offset + from, source, sourceRow + from, to - from);
+                else
+                    drawRow(offset + from, source, sourceRow + from, to - from);
+            }
+        }
+    }
+
+    /**
+     * This method is used to draw a row of premultiplied source colors on a horizontal span of the target buffer.
+     * The span must already be clipped against the clip rectangle.
+     *
+     * @param offset       the index of the first pixel of the span in the target buffer
+     * @param source       the premultiplied source colors
+     * @param sourceOffset the index of the first source color
+     * @param length       the number of pixels in the span
+     */
+    private void drawPremultipliedRow(int offset, int[] source, int sourceOffset, int length) {
+        if (blendMode == BlendMode.REPLACE || (blendMode == BlendMode.NORMAL && !isAlphaEnabled)) {
+            drawRow(offset, source, sourceOffset, length);
+            return;
+        }
+        for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++)
+            plotPremultiplied(i, source[j]);
+    }
+
+    /**
+     * This method is used to draw a premultiplied color on the target buffer without checking it
+     * against the clip rectangle.
+     * With the NORMAL blend mode the color is blended as src + dst * (1 - alpha), which needs
+     * one multiplication per channel less than blending a straight color, in integer arithmetic
+     * regardless of the fixed-point setting. Other blend modes, and a global alpha, which replaces the alpha
+     * of the pixel just like it does for straight colors, get the color with straight alpha from plot().
+     *
+     * @param index the index of the pixel in the target buffer
+     * @param color the premultiplied color of the pixel
+     */
+    private void plotPremultiplied(int index, int color) {
+        if (blendMode == BlendMode.REPLACE || (blendMode == BlendMode.NORMAL && !isAlphaEnabled)) {
+            plot(index, color);
+            return;
+        }
+        int alpha = color >>> 24;
+        if (alpha == 0)
+            return;
+        if (blendMode == BlendMode.NORMAL && alpha == 0xff) {
+            pixels[index] = color;
+            return;
+        }
+        if (blendMode != BlendMode.NORMAL || globalAlphaFixed != -1) {
+            plot(index, BlendMode.unpremultiply(color));
+            return;
+        }
+        int inverse = 0xff - alpha;
+        int previousColor = pixels[index];
+        pixels[index] = 0xff000000 |
+                ((color & 0xff00ff) + BlendMode.multiplyLanes(previousColor & 0xff00ff, inverse)) |
+                ((color & 0xff00) + (BlendMode.multiplyLanes((previousColor >> 8) & 0xff, inverse) << 8));
+    }
+
+    /**
+     * This method is used to copy a row of source colors to the target buffer as opaque colors.
+     * Fully transparent source colors are skipped.
+     *
+     * @param offset       the index of the first pixel of the span in the target buffer
+     * @param source       the source colors
+     * @param sourceOffset the index of the first source color
+     * @param length       the number of pixels in the span
+     */
+    private void copyRow(int offset, int[] source, int sourceOffset, int length) {
+        for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+            int color = source[j];
+            if ((color >>> 24) != 0)
+                pixels[i] = color | 0xff000000;
+        }
+    }
+
+    /**
+     * This method is used to blend a row of source colors over the target buffer with floating-point arithmetic.
+     *
+     * @param offset       the index of the first pixel of the span in the target buffer
+     * @param source       the source colors
+     * @param sourceOffset the index of the first source color
+     * @param length       the number of pixels in the span
+     */
+    private void blendRow(int offset, int[] source, int sourceOffset, int length) {
+        for (int i = offset, j = sourceOffset, end = offset + length; i < end; i++, j++) {
+            int color = source[j];
+            int alpha = color >>> 24;
+            if (alpha == 0xff) {
+                pixels[i] = color;
+            } else if (alpha != 0) {
+                float alphaF = globalAlpha == -1 ? (float) alpha / 0xff : globalAlpha;
+                float inverseAlphaF = 1 - alphaF;
+                int previousColor = pixels[i];
+                pixels[i] = 0xff000000 |
+                        (int) (inverseAlphaF * ((previousColor >> 16) & 0xff) + alphaF * ((color >> 16) & 0xff)) << 16 |
+                        (int) (inverseAlphaF * ((previousColor >> 8) & 0xff) + alphaF * ((color >> 8) & 0xff)) << 8 |
+                        (int) (inverseAlphaF * (previousColor & 0xff) + alphaF * (color & 0xff));
+            }
         }
     }
 
@@ -474,9 +2650,33 @@ public final class Renderer {
      */
     public void drawText(int x, int y, int color, String text, FontAtlas fontAtlas) {
         text = text == null ? "" : text;
+        int textWidth = 0;
+        int textHeight = fontAtlas.getHeight();
+        for (int i = 0, lineWidth = 0; i < text.length(); i++) {
+            int ch = text.charAt(i);
+            if (ch == '\n') {
+                lineWidth = 0;
+                textHeight += fontAtlas.getHeight() + fontAtlas.getLineSpacing();
+            }
+            lineWidth += fontAtlas.getGlyphWidth(ch);
+            textWidth = Math.max(textWidth, lineWidth);
+        }
+        if (commands != null) {
+            int a = record(CommandBuffer.TEXT, text, x, y, x + textWidth, y + textHeight);
+            if (a >= 0) {
+                commands.commands[a] = x;
+                commands.commands[a + 1] = y;
+                commands.commands[a + 2] = color;
+                commands.references[(a / CommandBuffer.STRIDE) * CommandBuffer.REFERENCE_STRIDE + 1] = fontAtlas;
+            }
+            return;
+        }
+        markDirty(x, y, x + textWidth, y + textHeight);
         int xOffset = 0;
         int yOffset = 0;
         float alpha = (float) (color >>> 24) / 0xff;
+        int[] glyphs = fontAtlas.getPixels();
+        int atlasWidth = fontAtlas.getWidth();
         for (int i = 0; i < text.length(); i++) {
             int ch = text.charAt(i);
             if (ch == '\n') {
@@ -485,10 +2685,18 @@ public final class Renderer {
             }
             int offset = fontAtlas.getOffset(ch);
             int glyphWidth = fontAtlas.getGlyphWidth(ch);
-            for (int yy = 0; yy < fontAtlas.getHeight(); yy++) {
-                for (int xx = 0; xx < glyphWidth; xx++) {
-                    int fontAlpha = (int) ((fontAtlas.getPixel(xx + offset, yy) >>> 24) * alpha) << 24;
-                    setPixel(x + xx + xOffset, y + yy + yOffset, fontAlpha | (color & 0xffffff));
+            int glyphX = x + xOffset;
+            int glyphY = y + yOffset;
+            int startX = Math.max(clipX0 - glyphX, 0);
+            int startY = Math.max(clipY0 - glyphY, 0);
+            int endX = Math.min(clipX1 - glyphX, glyphWidth);
+            int endY = Math.min(clipY1 - glyphY, fontAtlas.getHeight());
+            for (int yy = startY; yy < endY; yy++) {
+                int index = glyphX + (glyphY + yy) * width;
+                int glyphIndex = offset + yy * atlasWidth;
+                for (int xx = startX; xx < endX; xx++) {
+                    int fontAlpha = (int) ((glyphs[glyphIndex + xx] >>> 24) * alpha) << 24;
+                    plot(index + xx, fontAlpha | (color & 0xffffff));
                 }
             }
             xOffset += glyphWidth;
@@ -525,4 +2733,89 @@ public final class Renderer {
     public int getHeight() {
         return height;
     }
+
+    /**
+     * This method is used to get the x coordinate of the clip rectangle.
+     *
+     * @return the x coordinate of the clip rectangle
+     */
+    public int getClipX() {
+        return clipX0;
+    }
+
+    /**
+     * This method is used to get the y coordinate of the clip rectangle.
+     *
+     * @return the y coordinate of the clip rectangle
+     */
+    public int getClipY() {
+        return clipY0;
+    }
+
+    /**
+     * This method is used to get the width of the clip rectangle.
+     *
+     * @return the width of the clip rectangle
+     */
+    public int getClipWidth() {
+        return clipX1 - clipX0;
+    }
+
+    /**
+     * This method is used to get the height of the clip rectangle.
+     *
+     * @return the height of the clip rectangle
+     */
+    public int getClipHeight() {
+        return clipY1 - clipY0;
+    }
+
+    /**
+     * This is an inner class that extends the RecursiveAction class.
+     * It splits the bands of the target buffer between the workers of the ForkJoinPool.
+     *
+     * @author Aryan Rai
+     * @see RecursiveAction
+     */
+    private final class BandTask extends RecursiveAction {
+        /**
+         * The serial version UID of the BandTask class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The index of the first band of the task.
+         */
+        private final int from;
+
+        /**
+         * The index after the last band of the task.
+         */
+        private final int to;
+
+        /**
+         * This is the constructor of the BandTask class.
+         *
+         * @param from the index of the first band of the task
+         * @param to   the index after the last band of the task
+         */
+        private BandTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * This is the compute method of the BandTask class.
+         * It rasterizes a single band, or splits the range of bands in two.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                bands[from].execute(commands);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BandTask(from, middle), new BandTask(middle, to));
+        }
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class provides the span tables the Renderer fills circles and ellipses from.
+ * A span table holds the half width of the shape on every row below its center, which is mirrored
+ * to the rows above it, so each row of the shape is filled as exactly one span.
+ * Tables are cached in small direct-mapped caches that are safe to use from the threads of parallel rendering.
+ * A table stores its own key in its first slots, so a cache slot holding a different shape is simply replaced.
+ *
+ * @author Aryan Rai
+ */
+final class SpanTable {
+
+    /**
+     * The number of tables each cache holds. It must be a power of two.
+     */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * The cached circle tables, the radius in slot 0 and the half widths after it.
+     */
+    private static final AtomicReferenceArray<int[]> CIRCLES = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    /**
+     * The cached ellipse tables, the radii in slots 0 and 1 and the half widths after them.
+     */
+    private static final AtomicReferenceArray<int[]> ELLIPSES = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    /**
+     * The index of the first half width in a circle table.
+     */
+    static final int CIRCLE_OFFSET = 1;
+
+    /**
+     * The index of the first half width in an ellipse table.
+     */
+    static final int ELLIPSE_OFFSET = 2;
+
+    /**
+     * Private constructor for the SpanTable class to prevent instantiation.
+     */
+    private SpanTable() {
+    }
+
+    /**
+     * This method returns the span table of a circle.
+     * The half width of row dy from the center is at index CIRCLE_OFFSET + |dy|, or -1 if the row is empty.
+     *
+     * @param radius the radius of the circle
+     * @return the span table of the circle
+     */
+    static int[] getCircle(int radius) {
+        int slot = radius & (CACHE_SIZE - 1);
+        int[] table = CIRCLES.get(slot);
+        if (table != null && table[0] == radius)
+            return table;
+        table = createCircle(radius);
+        CIRCLES.set(slot, table);
+        return table;
+    }
+
+    /**
+     * This method returns the span table of an axis-aligned ellipse.
+     * The half width of row dy from the center is at index ELLIPSE_OFFSET + |dy|.
+     *
+     * @param radiusX the horizontal radius of the ellipse
+     * @param radiusY the vertical radius of the ellipse
+     * @return the span table of the ellipse
+     */
+    static int[] getEllipse(int radiusX, int radiusY) {
+        int slot = (radiusX * 31 + radiusY) & (CACHE_SIZE - 1);
+        int[] table = ELLIPSES.get(slot);
+        if (table != null && table[0] == radiusX && table[1] == radiusY)
+            return table;
+        table = createEllipse(radiusX, radiusY);
+        ELLIPSES.set(slot, table);
+        return table;
+    }
+
+    /**
+     * This method is used to create the span table of a circle.
+     * It steps the midpoint circle algorithm and keeps the widest span it reaches on every row,
+     * so the filled pixels are the same as the ones of the scanlines the algorithm produces.
+     *
+     * @param radius the radius of the circle
+     * @return the span table of the circle
+     */
+    private static int[] createCircle(int radius) {
+        int[] table = new int[CIRCLE_OFFSET + radius + 1];
+        Arrays.fill(table, -1);
+        table[0] = radius;
+        int currX = 0, currY = radius;
+        int decisionParameter = 3 - 2 * radius;
+        table[CIRCLE_OFFSET] = currY;
+        while (currY > currX) {
+            currX++;
+            if (currX == currY)
+                break;
+            if (decisionParameter > 0) {
+                currY--;
+                table[CIRCLE_OFFSET + currY] = Math.max(table[CIRCLE_OFFSET + currY], currX);
+                decisionParameter = decisionParameter + 4 * (currX - currY) + 10;
+            } else
+                decisionParameter = decisionParameter + 4 * currX + 6;
+            if (currY > currX)
+                table[CIRCLE_OFFSET + currX] = Math.max(table[CIRCLE_OFFSET + currX], currY);
+        }
+        return table;
+    }
+
+    /**
+     * This method is used to create the span table of an axis-aligned ellipse.
+     * A pixel is inside the ellipse if its center is inside the ellipse whose radii are half a pixel larger,
+     * which gives the ellipse a width of 2 * radiusX + 1 pixels and rounded ends.
+     *
+     * @param radiusX the horizontal radius of the ellipse
+     * @param radiusY the vertical radius of the ellipse
+     * @return the span table of the ellipse
+     */
+    private static int[] createEllipse(int radiusX, int radiusY) {
+        int[] table = new int[ELLIPSE_OFFSET + radiusY + 1];
+        table[0] = radiusX;
+        table[1] = radiusY;
+        double outerX = radiusX + 0.5, outerY = radiusY + 0.5;
+        for (int row = 0; row <= radiusY; row++) {
+            double ratio = row / outerY;
+            table[ELLIPSE_OFFSET + row] = Math.min(radiusX, (int) (outerX * Math.sqrt(1 - ratio * ratio)));
+        }
+        return table;
+    }
+}
@@ -123,6 +123,7 @@ public class FontAtlas extends Sprite {
         this.width = width;
         this.height = height;
         this.pixels = sprite.getRGB(0, 0, width, height, null, 0, width);
+        this.stride = width;
     }
 
     /**
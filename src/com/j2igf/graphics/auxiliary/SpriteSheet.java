@@ -25,12 +25,22 @@ import com.j2igf.graphics.visual.Sprite;
 
 /**
  * A class that represents a Sprite sheet.
+ * The sprites of the sheet are views that share the pixels of the source sprite, created when they are first used.
+ * Since nothing is copied, a sprite of the sheet behaves differently from a standalone sprite:
+ * it can not be the target of a Renderer, unless it covers the whole source,
+ * and pixels set on it are written into the source, where they are seen by the source and the other sprites.
+ * Sprites that need pixels of their own can be copied with the copy constructor of the Sprite class.
  *
  * @author Aryan Rai
  */
 public class SpriteSheet {
     /**
-     * The sprites in the sprite sheet.
+     * The source sprite the sprites of the sheet are views of.
+     */
+    private final Sprite source;
+
+    /**
+     * The sprites in the sprite sheet, or null for those that were not used yet.
      */
     private final Sprite[][] sprites;
 
@@ -75,19 +85,8 @@ public class SpriteSheet {
         this.numberOfSpritesVertically = numberOfSpritesVertically;
         this.spriteWidth = src.getWidth() / numberOfSpritesHorizontally;
         this.spriteHeight = src.getHeight() / numberOfSpritesVertically;
+        this.source = src;
         this.sprites = new Sprite[numberOfSpritesVertically][numberOfSpritesHorizontally];
-        for (int y = 0; y < numberOfSpritesVertically; y++) {
-            for (int x = 0; x < numberOfSpritesHorizontally; x++) {
-                sprites[y][x] = new Sprite(spriteWidth, spriteHeight);
-                sprites[y][x].setOrigin(0.5f, 0.5f);
-                int xPos = x * spriteWidth;
-                int yPos = y * spriteHeight;
-                for (int i = 0; i < spriteHeight; i++) {
-                    System.arraycopy(src.getPixels(), xPos + (yPos + i) * src.getWidth(),
-                            sprites[y][x].getPixels(), i * spriteWidth, spriteWidth);
-                }
-            }
-        }
     }
 
     /**
@@ -108,15 +107,25 @@ public class SpriteSheet {
 
     /**
      * This method returns a sprite from the sprite sheet.
+     * The sprite is a view of its rectangle in the source sprite, and the same instance is returned on every call.
+     * Modifying its pixels modifies the source, and premultiplyAlpha() or unpremultiplyAlpha() on it converts
+     * only its rectangle while the source and the other sprites keep their own alpha format.
+     * Use new Sprite(sheet.getSprite(x, y)) for a copy that can be drawn on or converted independently.
      *
      * @param x The x coordinate of the sprite.
      * @param y The y coordinate of the sprite.
      * @return The sprite at the specified coordinates in the sprite sheet.
      */
     public Sprite getSprite(int x, int y) {
-        if (x < 0 || x > numberOfSpritesHorizontally || y < 0 || y > numberOfSpritesVertically)
+        if (x < 0 || x >= numberOfSpritesHorizontally || y < 0 || y >= numberOfSpritesVertically)
             return null;
-        return sprites[y][x];
+        Sprite sprite = sprites[y][x];
+        if (sprite == null) {
+            sprite = new Sprite(source, x * spriteWidth, y * spriteHeight, spriteWidth, spriteHeight);
+            sprite.setOrigin(0.5f, 0.5f);
+            sprites[y][x] = sprite;
+        }
+        return sprite;
     }
 
     /**
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics.auxiliary;
+
+import com.j2igf.event.Debug;
+import com.j2igf.graphics.visual.Sprite;
+
+import java.util.Arrays;
+
+/**
+ * A class that packs many small sprites into the pixels of one large sprite.
+ * Every packed sprite is returned as a view of its rectangle in the atlas, which renders exactly like the original,
+ * so that sprites drawn together also lie together in memory instead of in separate arrays across the heap.
+ * Rectangles are placed with a skyline packer, which tracks the top edge of the packed area as a list of
+ * horizontal segments and puts every sprite where it raises that edge the least.
+ *
+ * @author Aryan Rai
+ */
+public class TextureAtlas extends Sprite {
+    /**
+     * The x coordinates of the segments of the skyline, from left to right.
+     */
+    private int[] segmentX;
+
+    /**
+     * The heights of the segments of the skyline.
+     */
+    private int[] segmentY;
+
+    /**
+     * The widths of the segments of the skyline.
+     */
+    private int[] segmentWidth;
+
+    /**
+     * The number of segments of the skyline.
+     */
+    private int segmentCount;
+
+    /**
+     * The number of pixels covered by packed sprites.
+     */
+    private long usedArea;
+
+    /**
+     * This is the constructor of the TextureAtlas class.
+     *
+     * @param width  The width of the atlas.
+     * @param height The height of the atlas.
+     */
+    public TextureAtlas(int width, int height) {
+        super(width, height);
+        if (width <= 0 || height <= 0) {
+            Debug.logError(getClass().getSimpleName() + " -> Illegal arguments for TextureAtlas constructor!");
+            System.exit(-1);
+        }
+        this.segmentX = new int[16];
+        this.segmentY = new int[16];
+        this.segmentWidth = new int[16];
+        this.segmentWidth[0] = width;
+        this.segmentCount = 1;
+        this.usedArea = 0;
+    }
+
+    /**
+     * This method packs a sprite into the atlas.
+     * The returned view keeps the alpha format, filtering, origin and transform of the sprite.
+     *
+     * @param sprite The sprite to pack.
+     * @return The view of the packed copy of the sprite, or null if there is no room left for it.
+     */
+    public Sprite add(Sprite sprite) {
+        if (sprite == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        }
+        int spriteWidth = sprite.getWidth();
+        int spriteHeight = sprite.getHeight();
+        int bestIndex = -1, bestX = 0, bestY = 0, bestTop = Integer.MAX_VALUE, bestSegmentWidth = Integer.MAX_VALUE;
+        for (int i = 0; i < segmentCount; i++) {
+            int y = getFit(i, spriteWidth, spriteHeight);
+            if (y < 0)
+                continue;
+            int top = y + spriteHeight;
+            if (top < bestTop || (top == bestTop && segmentWidth[i] < bestSegmentWidth)) {
+                bestIndex = i;
+                bestX = segmentX[i];
+                bestY = y;
+                bestTop = top;
+                bestSegmentWidth = segmentWidth[i];
+            }
+        }
+        if (bestIndex < 0)
+            return null;
+        raiseSkyline(bestIndex, bestX, bestTop, spriteWidth);
+        for (int row = 0; row < spriteHeight; row++)
+            System.arraycopy(sprite.getPixels(), sprite.getOffset() + row * sprite.getStride(),
+                    pixels, bestX + (bestY + row) * width, spriteWidth);
+        usedArea += (long) spriteWidth * spriteHeight;
+        markModified();
+        return new Region(this, bestX, bestY, sprite);
+    }
+
+    /**
+     * This method packs many sprites into the atlas, tallest first, which wastes less space than packing
+     * them in any order.
+     *
+     * @param sprites The sprites to pack.
+     * @return The views of the packed sprites in the order of the given sprites,
+     * with null for every sprite there was no room left for.
+     */
+    public Sprite[] addAll(Sprite[] sprites) {
+        if (sprites == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite array can not be null!");
+            System.exit(-1);
+        }
+        Integer[] order = new Integer[sprites.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(sprites[b].getHeight(), sprites[a].getHeight()));
+        Sprite[] regions = new Sprite[sprites.length];
+        for (int i : order)
+            regions[i] = add(sprites[i]);
+        return regions;
+    }
+
+    /**
+     * This method finds the height a rectangle would be placed at if its left edge is at a segment.
+     *
+     * @param index  The index of the segment.
+     * @param width  The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @return The y coordinate of the rectangle, or -1 if it does not fit there.
+     */
+    private int getFit(int index, int width, int height) {
+        if (segmentX[index] + width > this.width)
+            return -1;
+        int y = 0;
+        for (int i = index, remaining = width; remaining > 0; i++) {
+            y = Math.max(y, segmentY[i]);
+            remaining -= segmentWidth[i];
+        }
+        return y + height <= this.height ? y : -1;
+    }
+
+    /**
+     * This method adds the top of a newly placed rectangle to the skyline, removing the parts of the segments
+     * it covers and merging neighbors of the same height.
+     *
+     * @param index The index of the segment the rectangle starts at.
+     * @param x     The x coordinate of the rectangle.
+     * @param top   The y coordinate of the top edge of the skyline over the rectangle.
+     * @param width The width of the rectangle.
+     */
+    private void raiseSkyline(int index, int x, int top, int width) {
+        if (segmentCount == segmentX.length) {
+            segmentX = Arrays.copyOf(segmentX, segmentCount * 2);
+            segmentY = Arrays.copyOf(segmentY, segmentCount * 2);
+            segmentWidth = Arrays.copyOf(segmentWidth, segmentCount * 2);
+        }
+        System.arraycopy(segmentX, index, segmentX, index + 1, segmentCount - index);
+        System.arraycopy(segmentY, index, segmentY, index + 1, segmentCount - index);
+        System.arraycopy(segmentWidth, index, segmentWidth, index + 1, segmentCount - index);
+        segmentX[index] = x;
+        segmentY[index] = top;
+        segmentWidth[index] = width;
+        segmentCount++;
+
+        int end = x + width;
+        int i = index + 1;
+        while (i < segmentCount && segmentX[i] < end) {
+            int shrink = end - segmentX[i];
+            if (shrink < segmentWidth[i]) {
+                segmentX[i] += shrink;
+                segmentWidth[i] -= shrink;
+                break;
+            }
+            removeSegment(i);
+        }
+        for (i = 0; i < segmentCount - 1; ) {
+            if (segmentY[i] == segmentY[i + 1]) {
+                segmentWidth[i] += segmentWidth[i + 1];
+                removeSegment(i + 1);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * This method removes a segment from the skyline.
+     *
+     * @param index The index of the segment.
+     */
+    private void removeSegment(int index) {
+        segmentCount--;
+        System.arraycopy(segmentX, index + 1, segmentX, index, segmentCount - index);
+        System.arraycopy(segmentY, index + 1, segmentY, index, segmentCount - index);
+        System.arraycopy(segmentWidth, index + 1, segmentWidth, index, segmentCount - index);
+    }
+
+    /**
+     * This method returns the fraction of the atlas covered by packed sprites.
+     *
+     * @return The occupancy of the atlas, between 0 and 1.
+     */
+    public float getOccupancy() {
+        return (float) usedArea / ((long) width * height);
+    }
+
+    /**
+     * A class that represents a packed sprite as a view of its rectangle in the atlas.
+     */
+    private static final class Region extends Sprite {
+        /**
+         * This is the constructor of the Region class.
+         *
+         * @param atlas  The atlas the sprite was packed into.
+         * @param x      The x coordinate of the sprite in the atlas.
+         * @param y      The y coordinate of the sprite in the atlas.
+         * @param sprite The sprite that was packed.
+         */
+        private Region(TextureAtlas atlas, int x, int y, Sprite sprite) {
+            super(atlas, x, y, sprite.getWidth(), sprite.getHeight());
+            this.isPremultiplied = sprite.isPremultiplied();
+            this.isFilteringEnabled = sprite.isFilteringEnabled();
+            this.originX = sprite.getOriginX();
+            this.originY = sprite.getOriginY();
+            this.scaleX = sprite.getScaleX();
+            this.scaleY = sprite.getScaleY();
+            this.cos = sprite.getCos();
+            this.sin = sprite.getSin();
+            applyTransform();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics.auxiliary;
+
+import com.j2igf.event.Debug;
+import com.j2igf.graphics.BlendMode;
+import com.j2igf.graphics.Renderer;
+import com.j2igf.graphics.visual.Animation;
+import com.j2igf.graphics.visual.Sprite;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class that represents a grid of tiles taken from a SpriteSheet.
+ * The static tiles are baked into chunks of CHUNK_SIZE by CHUNK_SIZE tiles, so that rendering the map
+ * only copies the visible rows of a few chunk sprites instead of drawing every tile on its own.
+ * A chunk is baked when it first becomes visible after one of its tiles changed, and the least recently
+ * drawn chunks are released once more than the chunk budget are baked.
+ * Animated tiles are drawn as overlays on top of the chunks.
+ *
+ * @author Aryan Rai
+ */
+public class TileMap {
+    /**
+     * The number of tiles along each side of a chunk.
+     */
+    public static final int CHUNK_SIZE = 16;
+
+    /**
+     * The default number of chunks that are kept baked.
+     */
+    public static final int DEFAULT_CHUNK_BUDGET = 64;
+
+    /**
+     * The value of a cell without a tile.
+     */
+    public static final int EMPTY = -1;
+
+    /**
+     * The chunk that stands for chunks without any tile.
+     */
+    private static final Sprite EMPTY_CHUNK = new Sprite(0, 0);
+
+    /**
+     * The sprite sheet the tiles are taken from.
+     */
+    private final SpriteSheet spriteSheet;
+
+    /**
+     * The sprite sheet index of the tile in every cell, row by row, or EMPTY.
+     */
+    private final int[] tiles;
+
+    /**
+     * The number of tiles horizontally.
+     */
+    private final int columns;
+
+    /**
+     * The number of tiles vertically.
+     */
+    private final int rows;
+
+    /**
+     * The number of chunks horizontally.
+     */
+    private final int chunkColumns;
+
+    /**
+     * The number of chunks vertically.
+     */
+    private final int chunkRows;
+
+    /**
+     * The baked chunks by chunk index, ordered from the least to the most recently drawn.
+     */
+    private final LinkedHashMap<Integer, Sprite> chunks;
+
+    /**
+     * The maximum number of chunks that are kept baked.
+     */
+    private final int chunkBudget;
+
+    /**
+     * The animations drawn over the cells by cell index.
+     */
+    private final HashMap<Integer, Animation> overlays;
+
+    /**
+     * This is the constructor of the TileMap class with the default chunk budget.
+     *
+     * @param spriteSheet The sprite sheet to take the tiles from.
+     * @param columns     The number of tiles horizontally.
+     * @param rows        The number of tiles vertically.
+     */
+    public TileMap(SpriteSheet spriteSheet, int columns, int rows) {
+        this(spriteSheet, columns, rows, DEFAULT_CHUNK_BUDGET);
+    }
+
+    /**
+     * This is the constructor of the TileMap class.
+     * The chunk budget should cover the chunks visible at once, or chunks are baked again every frame.
+     *
+     * @param spriteSheet The sprite sheet to take the tiles from.
+     * @param columns     The number of tiles horizontally.
+     * @param rows        The number of tiles vertically.
+     * @param chunkBudget The maximum number of chunks that are kept baked.
+     */
+    public TileMap(SpriteSheet spriteSheet, int columns, int rows, int chunkBudget) {
+        if (spriteSheet == null) {
+            Debug.logError(getClass().getSimpleName() + " -> SpriteSheet instance can not be null!");
+            System.exit(-1);
+        } else if (columns <= 0 || rows <= 0 || chunkBudget <= 0) {
+            Debug.logError(getClass().getSimpleName() + " -> Illegal arguments for TileMap constructor!");
+            System.exit(-1);
+        }
+        this.spriteSheet = spriteSheet;
+        this.tiles = new int[columns * rows];
+        Arrays.fill(tiles, EMPTY);
+        this.columns = columns;
+        this.rows = rows;
+        this.chunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true);
+        this.chunkBudget = chunkBudget;
+        this.overlays = new HashMap<>();
+    }
+
+    /**
+     * This method renders the part of the map that lies inside the clip rectangle of the renderer.
+     *
+     * @param renderer The renderer to use.
+     * @param x        The x coordinate of the top left corner of the map.
+     * @param y        The y coordinate of the top left corner of the map.
+     */
+    public void render(Renderer renderer, int x, int y) {
+        if (renderer == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Renderer instance can not be null!");
+            System.exit(-1);
+        }
+        int tileWidth = spriteSheet.getSpriteWidth();
+        int tileHeight = spriteSheet.getSpriteHeight();
+        int chunkWidth = CHUNK_SIZE * tileWidth;
+        int chunkHeight = CHUNK_SIZE * tileHeight;
+        int startX = Math.max(0, Math.floorDiv(renderer.getClipX() - x, chunkWidth));
+        int startY = Math.max(0, Math.floorDiv(renderer.getClipY() - y, chunkHeight));
+        int endX = Math.min(chunkColumns,
+                Math.floorDiv(renderer.getClipX() + renderer.getClipWidth() - x - 1, chunkWidth) + 1);
+        int endY = Math.min(chunkRows,
+                Math.floorDiv(renderer.getClipY() + renderer.getClipHeight() - y - 1, chunkHeight) + 1);
+        for (int chunkY = startY; chunkY < endY; chunkY++) {
+            for (int chunkX = startX; chunkX < endX; chunkX++) {
+                Sprite chunk = getChunk(chunkX, chunkY);
+                if (chunk != EMPTY_CHUNK)
+                    renderer.drawSprite(chunk, x + chunkX * chunkWidth, y + chunkY * chunkHeight);
+            }
+        }
+        if (overlays.isEmpty())
+            return;
+        int clipX0 = renderer.getClipX() - x, clipY0 = renderer.getClipY() - y;
+        int clipX1 = clipX0 + renderer.getClipWidth(), clipY1 = clipY0 + renderer.getClipHeight();
+        for (Map.Entry<Integer, Animation> overlay : overlays.entrySet()) {
+            int cellX = overlay.getKey() % columns * tileWidth;
+            int cellY = overlay.getKey() / columns * tileHeight;
+            if (cellX + tileWidth <= clipX0 || cellX >= clipX1 || cellY + tileHeight <= clipY0 || cellY >= clipY1)
+                continue;
+            overlay.getValue().render(renderer, x + cellX + tileWidth / 2, y + cellY + tileHeight / 2);
+        }
+    }
+
+    /**
+     * This method gets a baked chunk, baking it if it is missing and releasing the least recently drawn
+     * chunk if the budget is exceeded.
+     *
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkY The y coordinate of the chunk.
+     * @return The baked chunk, or EMPTY_CHUNK if it has no tiles.
+     */
+    private Sprite getChunk(int chunkX, int chunkY) {
+        Integer key = chunkX + chunkY * chunkColumns;
+        Sprite chunk = chunks.get(key);
+        if (chunk != null)
+            return chunk;
+        chunk = bakeChunk(chunkX, chunkY);
+        chunks.put(key, chunk);
+        if (chunks.size() > chunkBudget) {
+            Iterator<Sprite> iterator = chunks.values().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+        return chunk;
+    }
+
+    /**
+     * This method copies the tiles of a chunk row by row into a new sprite.
+     * The chunk takes the alpha format of its first tile, and tiles in the other format are converted while copied.
+     * A new sprite is baked every time, so that draw calls recorded with an older chunk stay valid.
+     *
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkY The y coordinate of the chunk.
+     * @return The baked chunk, or EMPTY_CHUNK if it has no tiles.
+     */
+    private Sprite bakeChunk(int chunkX, int chunkY) {
+        int column0 = chunkX * CHUNK_SIZE, row0 = chunkY * CHUNK_SIZE;
+        int column1 = Math.min(columns, column0 + CHUNK_SIZE), row1 = Math.min(rows, row0 + CHUNK_SIZE);
+        int tileWidth = spriteSheet.getSpriteWidth();
+        int tileHeight = spriteSheet.getSpriteHeight();
+        Sprite chunk = null;
+        int[] pixels = null;
+        int chunkWidth = (column1 - column0) * tileWidth;
+        for (int row = row0; row < row1; row++) {
+            for (int column = column0; column < column1; column++) {
+                int tile = tiles[column + row * columns];
+                if (tile == EMPTY)
+                    continue;
+                Sprite sprite = spriteSheet.getSprite(tile, false);
+                if (chunk == null) {
+                    chunk = new Sprite(chunkWidth, (row1 - row0) * tileHeight);
+                    // Converting the blank chunk is free and marks it premultiplied like the tiles.
+                    if (sprite.isPremultiplied())
+                        chunk.premultiplyAlpha();
+                    pixels = chunk.getPixels();
+                }
+                int offset = (column - column0) * tileWidth + (row - row0) * tileHeight * chunkWidth;
+                if (sprite.isPremultiplied() == chunk.isPremultiplied()) {
+                    for (int i = 0; i < tileHeight; i++)
+                        System.arraycopy(sprite.getPixels(), sprite.getOffset() + i * sprite.getStride(),
+                                pixels, offset + i * chunkWidth, tileWidth);
+                    continue;
+                }
+                // Tiles in the other alpha format are converted to the format of the chunk.
+                int[] source = sprite.getPixels();
+                boolean isPremultiplied = chunk.isPremultiplied();
+                for (int i = 0; i < tileHeight; i++)
+                    for (int j = 0, k = sprite.getOffset() + i * sprite.getStride(); j < tileWidth; j++, k++)
+                        pixels[offset + i * chunkWidth + j] = isPremultiplied ? BlendMode.premultiply(source[k])
+                                : BlendMode.unpremultiply(source[k]);
+            }
+        }
+        return chunk == null ? EMPTY_CHUNK : chunk;
+    }
+
+    /**
+     * This method sets the tile of a cell and releases the chunk it belongs to, so that it is baked again.
+     * Cells outside the map are ignored.
+     *
+     * @param column The column of the cell.
+     * @param row    The row of the cell.
+     * @param tile   The sprite sheet index of the tile, scanned horizontally, or EMPTY.
+     */
+    public void setTile(int column, int row, int tile) {
+        if (tile < EMPTY
+                || tile >= spriteSheet.getNumberOfSpritesHorizontally() * spriteSheet.getNumberOfSpritesVertically()) {
+            Debug.logError(getClass().getSimpleName() + " -> Illegal tile index for TileMap!");
+            System.exit(-1);
+        }
+        if (column < 0 || column >= columns || row < 0 || row >= rows)
+            return;
+        int index = column + row * columns;
+        if (tiles[index] == tile)
+            return;
+        tiles[index] = tile;
+        chunks.remove(column / CHUNK_SIZE + row / CHUNK_SIZE * chunkColumns);
+    }
+
+    /**
+     * This method gets the tile of a cell.
+     *
+     * @param column The column of the cell.
+     * @param row    The row of the cell.
+     * @return The sprite sheet index of the tile, or EMPTY if the cell has no tile or is outside the map.
+     */
+    public int getTile(int column, int row) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows)
+            return EMPTY;
+        return tiles[column + row * columns];
+    }
+
+    /**
+     * This method sets an animation that is drawn over a cell, on top of its static tile.
+     * The animation is not updated by the map, so one animation can be shared by many cells.
+     * Cells outside the map are ignored.
+     *
+     * @param column    The column of the cell.
+     * @param row       The row of the cell.
+     * @param animation The animation to draw over the cell, or null to remove it.
+     */
+    public void setAnimatedTile(int column, int row, Animation animation) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows)
+            return;
+        if (animation == null)
+            overlays.remove(column + row * columns);
+        else
+            overlays.put(column + row * columns, animation);
+    }
+
+    /**
+     * This method releases every baked chunk, which is needed after the pixels of the sprite sheet change.
+     */
+    public void invalidate() {
+        chunks.clear();
+    }
+
+    /**
+     * This method returns the number of tiles horizontally.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * This method returns the number of tiles vertically.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * This method returns the number of chunks that are currently baked.
+     *
+     * @return The number of baked chunks.
+     */
+    public int getBakedChunks() {
+        return chunks.size();
+    }
+}
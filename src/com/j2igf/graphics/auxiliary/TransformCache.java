@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics.auxiliary;
+
+import com.j2igf.event.Debug;
+import com.j2igf.graphics.Renderer;
+import com.j2igf.graphics.visual.Sprite;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches transformed copies of sprites, so that a sprite drawn again at the same rotation and scale
+ * costs a plain blit instead of resampling every pixel.
+ * Rotations and scales are quantized to a fixed number of steps, so that nearby transforms share one copy.
+ * When the copies exceed the memory budget, the least recently used ones are evicted.
+ * Copies are keyed by the sprite instance and remember the modification count of its pixels,
+ * so a copy of a sprite that was marked modified since is made again on its next lookup.
+ *
+ * @author Aryan Rai
+ */
+public class TransformCache {
+    /**
+     * The default number of steps a full rotation is quantized to.
+     */
+    public static final int DEFAULT_ANGLE_STEPS = 256;
+
+    /**
+     * The default number of steps a unit of scale is quantized to.
+     */
+    public static final int DEFAULT_SCALE_STEPS = 16;
+
+    /**
+     * The cached copies, ordered from the least to the most recently used.
+     */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /**
+     * The maximum number of bytes the cached copies may use.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The number of steps a full rotation is quantized to.
+     */
+    private final int angleSteps;
+
+    /**
+     * The number of steps a unit of scale is quantized to.
+     */
+    private final int scaleSteps;
+
+    /**
+     * The number of bytes the cached copies use.
+     */
+    private long memoryUsed;
+
+    /**
+     * The number of lookups that found a cached copy.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that had to create a copy.
+     */
+    private long misses;
+
+    /**
+     * This is the constructor of the TransformCache class with the default quantization.
+     *
+     * @param memoryBudget The maximum number of bytes the cached copies may use.
+     */
+    public TransformCache(long memoryBudget) {
+        this(memoryBudget, DEFAULT_ANGLE_STEPS, DEFAULT_SCALE_STEPS);
+    }
+
+    /**
+     * This is the constructor of the TransformCache class.
+     *
+     * @param memoryBudget The maximum number of bytes the cached copies may use.
+     * @param angleSteps   The number of steps a full rotation is quantized to.
+     * @param scaleSteps   The number of steps a unit of scale is quantized to.
+     */
+    public TransformCache(long memoryBudget, int angleSteps, int scaleSteps) {
+        if (memoryBudget <= 0 || angleSteps <= 0 || scaleSteps <= 0) {
+            Debug.logError(getClass().getSimpleName() + " -> Illegal arguments for TransformCache constructor!");
+            System.exit(-1);
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.memoryBudget = memoryBudget;
+        this.angleSteps = angleSteps;
+        this.scaleSteps = scaleSteps;
+        this.memoryUsed = 0;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * This method renders a sprite with its current rotation and scale, quantized, from the cache.
+     * It lines up with the sprite drawn by renderTransformed() up to the quantization.
+     *
+     * @param renderer The renderer to use.
+     * @param sprite   The sprite to render.
+     * @param x        The x coordinate to render the origin of the sprite at.
+     * @param y        The y coordinate to render the origin of the sprite at.
+     */
+    public void render(Renderer renderer, Sprite sprite, int x, int y) {
+        if (renderer == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Renderer instance can not be null!");
+            System.exit(-1);
+        }
+        Entry entry = getEntry(sprite);
+        renderer.drawSprite(entry.sprite, x + entry.offsetX, y + entry.offsetY);
+    }
+
+    /**
+     * This method gets the transformed copy of a sprite with its current rotation and scale, quantized.
+     * The returned sprite is shared with later lookups, so it must not be modified.
+     *
+     * @param sprite The sprite to transform.
+     * @return The transformed copy of the sprite.
+     */
+    public Sprite getTransformed(Sprite sprite) {
+        return getEntry(sprite).sprite;
+    }
+
+    /**
+     * This method looks up the cached copy of a sprite, creating it and evicting older copies when it is missing.
+     * A copy made before the pixels of the sprite were last modified is replaced.
+     *
+     * @param sprite The sprite to transform.
+     * @return The cache entry of the sprite.
+     */
+    private Entry getEntry(Sprite sprite) {
+        if (sprite == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        }
+        double angle = Math.atan2(sprite.getSin(), sprite.getCos());
+        Key key = new Key(sprite, Math.floorMod(Math.round(angle / (2 * Math.PI) * angleSteps), angleSteps),
+                quantizeScale(sprite.getScaleX()), quantizeScale(sprite.getScaleY()),
+                sprite.getOriginX(), sprite.getOriginY(), sprite.isFilteringEnabled());
+        int modificationCount = sprite.getModificationCount();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.modificationCount == modificationCount) {
+                hits++;
+                return entry;
+            }
+            entries.remove(key);
+            memoryUsed -= entry.size;
+        }
+        misses++;
+        entry = createEntry(key, modificationCount);
+        if (entry.size > memoryBudget)
+            return entry;
+        entries.put(key, entry);
+        memoryUsed += entry.size;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (memoryUsed > memoryBudget) {
+            memoryUsed -= iterator.next().size;
+            iterator.remove();
+        }
+        return entry;
+    }
+
+    /**
+     * This method resamples a sprite at the quantized transform of a key.
+     * The source pixels are shared with a pose, so that the transform of the sprite itself is left untouched.
+     *
+     * @param key               The key to create the entry for.
+     * @param modificationCount The modification count of the pixels of the sprite.
+     * @return The entry holding the transformed copy.
+     */
+    private Entry createEntry(Key key, int modificationCount) {
+        Pose pose = new Pose(key.sprite);
+        pose.setOrigin(key.originX, key.originY);
+        pose.setScale((float) key.scaleX / scaleSteps, (float) key.scaleY / scaleSteps);
+        pose.setAngleInRadians((float) (2 * Math.PI * key.angle / angleSteps));
+        Sprite transformed = pose.getTransformed();
+        return new Entry(transformed, pose.getTransformedStartX(), pose.getTransformedStartY(), modificationCount);
+    }
+
+    /**
+     * This method quantizes a scale to the scale steps, keeping it above zero.
+     *
+     * @param scale The scale to quantize.
+     * @return The number of scale steps.
+     */
+    private int quantizeScale(float scale) {
+        return Math.max(1, Math.round(scale * scaleSteps));
+    }
+
+    /**
+     * This method removes every cached copy of a sprite, releasing their memory right away.
+     * Copies of a sprite that was marked modified are made again on their next lookup without it.
+     *
+     * @param sprite The sprite to invalidate.
+     */
+    public void invalidate(Sprite sprite) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().sprite == sprite) {
+                memoryUsed -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * This method removes every cached copy and resets the counters.
+     */
+    public void clear() {
+        entries.clear();
+        memoryUsed = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * This method returns the number of lookups that found a cached copy.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * This method returns the number of lookups that had to create a copy.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * This method returns the number of cached copies.
+     *
+     * @return The number of cached copies.
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * This method returns the number of bytes the cached copies use.
+     *
+     * @return The used memory in bytes.
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * This method returns the maximum number of bytes the cached copies may use.
+     *
+     * @return The memory budget in bytes.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * A class that identifies a sprite at a quantized transform.
+     */
+    private static final class Key {
+        /**
+         * The source sprite, compared by identity.
+         */
+        private final Sprite sprite;
+
+        /**
+         * The quantized rotation in angle steps.
+         */
+        private final int angle;
+
+        /**
+         * The quantized x scale in scale steps.
+         */
+        private final int scaleX;
+
+        /**
+         * The quantized y scale in scale steps.
+         */
+        private final int scaleY;
+
+        /**
+         * The normalized x offset of the origin.
+         */
+        private final float originX;
+
+        /**
+         * The normalized y offset of the origin.
+         */
+        private final float originY;
+
+        /**
+         * The flag to check if the copy is filtered.
+         */
+        private final boolean isFiltered;
+
+        /**
+         * This is the constructor of the Key class.
+         *
+         * @param sprite     The source sprite.
+         * @param angle      The quantized rotation in angle steps.
+         * @param scaleX     The quantized x scale in scale steps.
+         * @param scaleY     The quantized y scale in scale steps.
+         * @param originX    The normalized x offset of the origin.
+         * @param originY    The normalized y offset of the origin.
+         * @param isFiltered The flag to check if the copy is filtered.
+         */
+        private Key(Sprite sprite, int angle, int scaleX, int scaleY, float originX, float originY,
+                    boolean isFiltered) {
+            this.sprite = sprite;
+            this.angle = angle;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+            this.originX = originX;
+            this.originY = originY;
+            this.isFiltered = isFiltered;
+        }
+
+        /**
+         * This method checks if two keys identify the same copy.
+         *
+         * @param object The object to compare with.
+         * @return True if the keys are equal, false otherwise.
+         */
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key))
+                return false;
+            Key key = (Key) object;
+            return sprite == key.sprite && angle == key.angle && scaleX == key.scaleX && scaleY == key.scaleY
+                    && Float.compare(originX, key.originX) == 0 && Float.compare(originY, key.originY) == 0
+                    && isFiltered == key.isFiltered;
+        }
+
+        /**
+         * This method returns the hash code of the key.
+         *
+         * @return The hash code of the key.
+         */
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(sprite);
+            hash = hash * 31 + angle;
+            hash = hash * 31 + scaleX;
+            hash = hash * 31 + scaleY;
+            hash = hash * 31 + Float.floatToIntBits(originX);
+            hash = hash * 31 + Float.floatToIntBits(originY);
+            return hash * 2 + (isFiltered ? 1 : 0);
+        }
+    }
+
+    /**
+     * A class that holds a transformed copy and where to draw it relative to the origin of the sprite.
+     */
+    private static final class Entry {
+        /**
+         * The transformed copy.
+         */
+        private final Sprite sprite;
+
+        /**
+         * The x offset of the copy from the origin of the sprite.
+         */
+        private final int offsetX;
+
+        /**
+         * The y offset of the copy from the origin of the sprite.
+         */
+        private final int offsetY;
+
+        /**
+         * The number of bytes the copy uses.
+         */
+        private final long size;
+
+        /**
+         * The modification count of the pixels of the sprite when the copy was made.
+         */
+        private final int modificationCount;
+
+        /**
+         * This is the constructor of the Entry class.
+         *
+         * @param sprite            The transformed copy.
+         * @param offsetX           The x offset of the copy from the origin of the sprite.
+         * @param offsetY           The y offset of the copy from the origin of the sprite.
+         * @param modificationCount The modification count of the pixels of the sprite when the copy was made.
+         */
+        private Entry(Sprite sprite, int offsetX, int offsetY, int modificationCount) {
+            this.sprite = sprite;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.size = (long) sprite.getPixels().length * Integer.BYTES;
+            this.modificationCount = modificationCount;
+        }
+    }
+
+    /**
+     * A class that shares the pixels of a sprite under a transform of its own.
+     */
+    private static final class Pose extends Sprite {
+        /**
+         * This is the constructor of the Pose class.
+         *
+         * @param sprite The sprite whose pixels are shared.
+         */
+        private Pose(Sprite sprite) {
+            super(sprite, 0, 0, sprite.getWidth(), sprite.getHeight());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics.visual;
+
+import com.j2igf.event.Debug;
+import com.j2igf.graphics.Renderer;
+
+/**
+ * A class that represents a Sprite split into nine slices by four insets, for panels that can be drawn at any size.
+ * The corners are drawn as they are, the edges are stretched or tiled along their length,
+ * and the center is stretched or tiled in both directions.
+ *
+ * @author Aryan Rai
+ */
+public class NineSlice {
+    /**
+     * The sprite that is sliced.
+     */
+    private final Sprite sprite;
+
+    /**
+     * The width of the left column of slices.
+     */
+    private final int left;
+
+    /**
+     * The height of the top row of slices.
+     */
+    private final int top;
+
+    /**
+     * The width of the right column of slices.
+     */
+    private final int right;
+
+    /**
+     * The height of the bottom row of slices.
+     */
+    private final int bottom;
+
+    /**
+     * The flag to check if the edges and the center are tiled instead of stretched.
+     */
+    private boolean isTilingEnabled;
+
+    /**
+     * This is the constructor of the NineSlice class.
+     *
+     * @param sprite The sprite to slice.
+     * @param left   The width of the left column of slices.
+     * @param top    The height of the top row of slices.
+     * @param right  The width of the right column of slices.
+     * @param bottom The height of the bottom row of slices.
+     */
+    public NineSlice(Sprite sprite, int left, int top, int right, int bottom) {
+        if (sprite == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        } else if (left < 0 || top < 0 || right < 0 || bottom < 0
+                || left + right >= sprite.getWidth() || top + bottom >= sprite.getHeight()) {
+            Debug.logError(getClass().getSimpleName() + " -> Illegal arguments for NineSlice constructor!");
+            System.exit(-1);
+        }
+        this.sprite = sprite;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.isTilingEnabled = false;
+    }
+
+    /**
+     * This method renders the nine slices to fill a rectangle.
+     *
+     * @param renderer The renderer to use.
+     * @param x        The x coordinate of the top left corner of the rectangle.
+     * @param y        The y coordinate of the top left corner of the rectangle.
+     * @param width    The width of the rectangle.
+     * @param height   The height of the rectangle.
+     */
+    public void render(Renderer renderer, int x, int y, int width, int height) {
+        if (renderer == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Renderer instance can not be null!");
+            System.exit(-1);
+        }
+        renderer.drawNineSlice(this, x, y, width, height);
+    }
+
+    /**
+     * This method makes the edges and the center repeat their pixels instead of stretching them.
+     */
+    public void enableTiling() {
+        isTilingEnabled = true;
+    }
+
+    /**
+     * This method makes the edges and the center stretch their pixels, which is the default.
+     */
+    public void disableTiling() {
+        isTilingEnabled = false;
+    }
+
+    /**
+     * This method checks if the edges and the center are tiled.
+     *
+     * @return True if tiling is enabled, false otherwise.
+     */
+    public boolean isTilingEnabled() {
+        return isTilingEnabled;
+    }
+
+    /**
+     * This method gets the sprite that is sliced.
+     *
+     * @return The sliced sprite.
+     */
+    public Sprite getSprite() {
+        return sprite;
+    }
+
+    /**
+     * This method gets the width of the left column of slices.
+     *
+     * @return The left inset.
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * This method gets the height of the top row of slices.
+     *
+     * @return The top inset.
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * This method gets the width of the right column of slices.
+     *
+     * @return The right inset.
+     */
+    public int getRight() {
+        return right;
+    }
+
+    /**
+     * This method gets the height of the bottom row of slices.
+     *
+     * @return The bottom inset.
+     */
+    public int getBottom() {
+        return bottom;
+    }
+}
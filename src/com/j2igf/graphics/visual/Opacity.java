@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2023, Aryan Rai
+ *
+ * This software is provided 'as-is', without any express or implied
+ * warranty.  In no event will the authors be held liable for any damages
+ * arising from the use of this software.
+ *
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it
+ * freely, subject to the following restrictions:
+ *
+ * 1. The origin of this software must not be misrepresented; you must not
+ *    claim that you wrote the original software. If you use this software
+ *    in a product, an acknowledgment in the product documentation would be
+ *    appreciated but is not required.
+ * 2. Altered source versions must be plainly marked as such, and must not be
+ *    misrepresented as being the original software.
+ * 3. This notice may not be removed or altered from any source distribution.
+ */
+
+package com.j2igf.graphics.visual;
+
+/**
+ * This enum classifies the alpha values found in the pixels of a Sprite.
+ * Renderers use it to pick the cheapest way to draw the sprite.
+ *
+ * @author Aryan Rai
+ */
+public enum Opacity {
+    /**
+     * Every pixel is fully opaque, so rows of the sprite can be copied as they are.
+     */
+    OPAQUE,
+
+    /**
+     * Every pixel is either fully opaque or fully transparent, so pixels are either copied or skipped.
+     */
+    BINARY,
+
+    /**
+     * Some pixels are translucent and have to be blended.
+     */
+    TRANSLUCENT
+}
@@ -21,6 +21,7 @@
 package com.j2igf.graphics.visual;
 
 import com.j2igf.event.Debug;
+import com.j2igf.graphics.BlendMode;
 import com.j2igf.graphics.Renderer;
 
 import javax.imageio.ImageIO;
@@ -28,6 +29,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is responsible for handling sprites.
@@ -36,10 +38,40 @@ import java.util.Objects;
  */
 public class Sprite {
     /**
-     * The pixels of the sprite.
+     * The type of a run of fully transparent pixels.
+     */
+    public static final int RUN_TRANSPARENT = 0;
+
+    /**
+     * The type of a run of fully opaque pixels.
+     */
+    public static final int RUN_OPAQUE = 1;
+
+    /**
+     * The type of a run of translucent pixels.
+     */
+    public static final int RUN_TRANSLUCENT = 2;
+
+    /**
+     * The mask that extracts the length of a run from a run entry. The type is stored in the bits above it.
+     */
+    public static final int RUN_LENGTH_MASK = 0x3fffffff;
+
+    /**
+     * The pixels of the sprite, possibly shared with the sprite it is a view of.
      */
     protected int[] pixels;
 
+    /**
+     * The index of the top left pixel of the sprite in the pixel array.
+     */
+    protected int offset;
+
+    /**
+     * The distance between the first pixels of two consecutive rows in the pixel array.
+     */
+    protected int stride;
+
     /**
      * The width of the sprite.
      */
@@ -100,11 +132,53 @@ public class Sprite {
      */
     protected float sin;
 
+    /**
+     * The flag to check if the color channels of the pixels are premultiplied by their alpha.
+     */
+    protected boolean isPremultiplied;
+
+    /**
+     * The run-length encoded transparency of the pixels, or null if it is not built.
+     */
+    protected volatile int[] runs;
+
+    /**
+     * The flag to check if the run-length encoding should be kept up to date.
+     */
+    protected boolean isRunEncodingEnabled;
+
+    /**
+     * The classification of the alpha values of the pixels, or null if it is not known.
+     */
+    protected volatile Opacity opacity;
+
+    /**
+     * The flag to check if the sprite is sampled with bilinear filtering when it is rotated or scaled.
+     */
+    protected boolean isFilteringEnabled;
+
+    /**
+     * The box-filtered copies of the sprite at half, quarter and smaller sizes, or null if they are not built.
+     */
+    protected volatile Sprite[] mipmaps;
+
+    /**
+     * The number of modifications of the pixels, shared by every sprite that views the same pixels.
+     */
+    protected AtomicInteger modifications;
+
+    /**
+     * The number of modifications of the pixels when the derived information was last known to be valid.
+     */
+    protected volatile int validModifications;
+
     /**
      * This is the default constructor of the Sprite class.
      */
     protected Sprite() {
         this.pixels = null;
+        this.offset = 0;
+        this.stride = 0;
         this.width = 0;
         this.height = 0;
         this.transformedStartX = 0;
@@ -117,6 +191,14 @@ public class Sprite {
         this.scaleY = 1;
         this.cos = 1;
         this.sin = 0;
+        this.isPremultiplied = false;
+        this.runs = null;
+        this.isRunEncodingEnabled = false;
+        this.opacity = null;
+        this.isFilteringEnabled = false;
+        this.mipmaps = null;
+        this.modifications = new AtomicInteger();
+        this.validModifications = 0;
     }
 
     /**
@@ -130,7 +212,12 @@ public class Sprite {
             Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
             System.exit(-1);
         }
-        this.pixels = Arrays.copyOf(sprite.getPixels(), sprite.getPixels().length);
+        sprite.validate();
+        this.pixels = new int[sprite.width * sprite.height];
+        for (int y = 0; y < sprite.height; y++)
+            System.arraycopy(sprite.pixels, sprite.offset + y * sprite.stride, pixels, y * sprite.width, sprite.width);
+        this.offset = 0;
+        this.stride = sprite.width;
         this.width = sprite.width;
         this.height = sprite.height;
         this.transformedStartX = sprite.transformedStartX;
@@ -143,6 +230,14 @@ public class Sprite {
         this.scaleY = sprite.scaleY;
         this.cos = sprite.cos;
         this.sin = sprite.sin;
+        this.isPremultiplied = sprite.isPremultiplied;
+        this.runs = sprite.runs;
+        this.isRunEncodingEnabled = sprite.isRunEncodingEnabled;
+        this.opacity = sprite.opacity;
+        this.isFilteringEnabled = sprite.isFilteringEnabled;
+        this.mipmaps = sprite.mipmaps;
+        this.modifications = new AtomicInteger();
+        this.validModifications = 0;
     }
 
     /**
@@ -156,6 +251,41 @@ public class Sprite {
         this.width = width;
         this.height = height;
         this.pixels = new int[width * height];
+        this.stride = width;
+    }
+
+    /**
+     * This is a parameterized constructor of the Sprite class that creates a view of a rectangle of another sprite.
+     * The view shares the pixels of the other sprite instead of copying them, and starts out with its alpha format
+     * and filtering. Changes to the shared pixels are visible through both sprites, and marking either of them
+     * modified rebuilds the information derived from the pixels of both.
+     *
+     * @param parent The sprite to view.
+     *               It can not be null.
+     * @param x      The x coordinate of the rectangle in the parent.
+     * @param y      The y coordinate of the rectangle in the parent.
+     * @param width  The width of the rectangle.
+     * @param height The height of the rectangle.
+     */
+    public Sprite(Sprite parent, int x, int y, int width, int height) {
+        this();
+        if (parent == null) {
+            Debug.logError(getClass().getSimpleName() + " -> Sprite instance can not be null!");
+            System.exit(-1);
+        } else if (x < 0 || y < 0 || width <= 0 || height <= 0
+                || x + width > parent.width || y + height > parent.height) {
+            Debug.logError(getClass().getSimpleName() + " -> Illegal arguments for Sprite constructor!");
+            System.exit(-1);
+        }
+        this.pixels = parent.pixels;
+        this.offset = parent.offset + x + y * parent.stride;
+        this.stride = parent.stride;
+        this.width = width;
+        this.height = height;
+        this.isPremultiplied = parent.isPremultiplied;
+        this.isFilteringEnabled = parent.isFilteringEnabled;
+        this.modifications = parent.modifications;
+        this.validModifications = modifications.get();
     }
 
     /**
@@ -196,7 +326,9 @@ public class Sprite {
         this.width = image.getWidth();
         this.height = image.getHeight();
         this.pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        this.stride = width;
         image.flush();
+        this.opacity = classify();
     }
 
     /**
@@ -232,6 +364,7 @@ public class Sprite {
 
     /**
      * This method applies the current transformation to a copy of the sprite and returns it.
+     * With bilinear filtering enabled the copy is filtered like transformed rendering.
      *
      * @return The transformed sprite.
      */
@@ -240,6 +373,13 @@ public class Sprite {
         Sprite sprite = new Sprite(transformedEndX - transformedStartX, transformedEndY - transformedStartY);
         sprite.originX = 0.5f;
         sprite.originY = 0.5f;
+        sprite.isPremultiplied = isPremultiplied;
+        sprite.isFilteringEnabled = isFilteringEnabled;
+        if (isFilteringEnabled) {
+            Renderer.resampleTransformed(this, sprite.pixels, sprite.width, sprite.height,
+                    -transformedStartX, -transformedStartY);
+            return sprite;
+        }
         for (int currY = transformedStartY; currY < transformedEndY; currY++) {
             for (int currX = transformedStartX; currX < transformedEndX; currX++) {
                 int xVal = (int) (((currX * cos - currY * sin) / scaleX) + width * originX);
@@ -262,13 +402,7 @@ public class Sprite {
             Debug.logError(getClass().getSimpleName() + " -> Renderer instance can not be null!");
             System.exit(-1);
         }
-        for (int currY = transformedStartY; currY < transformedEndY; currY++) {
-            for (int currX = transformedStartX; currX < transformedEndX; currX++) {
-                int xVal = (int) (((currX * cos - currY * sin) / scaleX) + width * originX);
-                int yVal = (int) (((currX * sin + currY * cos) / scaleY) + height * originY);
-                renderer.setPixel(x + currX, y + currY, getPixel(xVal, yVal));
-            }
-        }
+        renderer.drawSpriteTransformed(this, x, y);
     }
 
     /**
@@ -283,25 +417,294 @@ public class Sprite {
             Debug.logError(getClass().getSimpleName() + " -> Renderer instance can not be null!");
             System.exit(-1);
         }
-        x -= (int) (originX * width);
-        y -= (int) (originY * height);
-        int startX = 0, startY = 0;
-        int endX = width, endY = height;
-
-        if (x < 0)
-            startX -= x;
-        if (y < 0)
-            startY -= y;
-        if (x + endX > renderer.getWidth())
-            endX = renderer.getWidth() - x;
-        if (y + endY > renderer.getHeight())
-            endY = renderer.getHeight() - y;
-
-        for (int currY = startY; currY < endY; currY++) {
-            for (int currX = startX; currX < endX; currX++) {
-                renderer.setPixel(x + currX, y + currY, getPixel(currX, currY));
+        renderer.drawSprite(this, x - (int) (originX * width), y - (int) (originY * height));
+    }
+
+    /**
+     * This method splits every row of the sprite into runs of transparent, opaque and translucent pixels.
+     * Renderers skip transparent runs, copy opaque runs and only blend translucent runs of an encoded sprite,
+     * which saves most of the work for sprites with large transparent areas.
+     * Once enabled, the encoding is rebuilt on the next draw after the sprite is modified.
+     */
+    public void encodeRuns() {
+        isRunEncodingEnabled = true;
+        runs = createRuns();
+    }
+
+    /**
+     * This method is used to stop keeping the run-length encoding of the sprite and release it.
+     */
+    public void discardRuns() {
+        isRunEncodingEnabled = false;
+        runs = null;
+    }
+
+    /**
+     * This method creates the run-length encoded transparency of the pixels.
+     *
+     * @return The runs of the sprite, in the layout described by getRuns().
+     */
+    private int[] createRuns() {
+        int[] encoded = new int[height + 1 + Math.max(16, height * 2)];
+        int count = height + 1;
+        for (int y = 0; y < height; y++) {
+            encoded[y] = count;
+            int x = 0;
+            while (x < width) {
+                int type = getRunType(pixels[offset + x + y * stride]);
+                int start = x;
+                while (x < width && getRunType(pixels[offset + x + y * stride]) == type)
+                    x++;
+                if (count == encoded.length)
+                    encoded = Arrays.copyOf(encoded, encoded.length * 2);
+                encoded[count++] = type << 30 | (x - start);
             }
         }
+        encoded[height] = count;
+        return Arrays.copyOf(encoded, count);
+    }
+
+    /**
+     * This method gets the run-length encoded transparency of the sprite.
+     * The first height + 1 entries hold the index of the first run of every row followed by the end of the last row.
+     * Every run entry holds the type of the run in its top two bits and its length in RUN_LENGTH_MASK.
+     *
+     * @return The runs of the sprite, or null if it is not encoded.
+     */
+    public int[] getRuns() {
+        validate();
+        int[] runs = this.runs;
+        if (runs == null && isRunEncodingEnabled) {
+            runs = createRuns();
+            this.runs = runs;
+        }
+        return runs;
+    }
+
+    /**
+     * This method enables bilinear filtering, so that the sprite is sampled from the four nearest pixels
+     * when it is rotated or scaled, which removes the shimmering of nearest-neighbor sampling.
+     * Filtering interpolates premultiplied colors, so it is cheapest on premultiplied sprites.
+     */
+    public void enableFiltering() {
+        isFilteringEnabled = true;
+    }
+
+    /**
+     * This method disables bilinear filtering, which is the default.
+     */
+    public void disableFiltering() {
+        isFilteringEnabled = false;
+    }
+
+    /**
+     * This method checks if bilinear filtering is enabled for the sprite.
+     *
+     * @return True if bilinear filtering is enabled, false otherwise.
+     */
+    public boolean isFilteringEnabled() {
+        return isFilteringEnabled;
+    }
+
+    /**
+     * This method gets the mipmap level that is used to draw the sprite at a scale.
+     * It is the smallest level that is still at least as large as the drawn sprite, so that every drawn pixel
+     * samples an average of at most two by two source pixels instead of skipping over them.
+     * The mipmap chain is built on the first call that needs it, and rebuilt after the sprite is modified.
+     *
+     * @param scale The scale the sprite is drawn at.
+     * @return The sprite itself for scales above one half, otherwise the mipmap level for the scale.
+     */
+    public Sprite getMipmap(float scale) {
+        if (!(scale <= 0.5f))
+            return this;
+        validate();
+        Sprite[] mipmaps = this.mipmaps;
+        if (mipmaps == null) {
+            mipmaps = createMipmaps();
+            this.mipmaps = mipmaps;
+        }
+        int level = 0;
+        while (level < mipmaps.length - 1 && scale * (4 << level) <= 1)
+            level++;
+        return mipmaps.length == 0 ? this : mipmaps[level];
+    }
+
+    /**
+     * This method creates the mipmap chain of the sprite, where every level averages two by two pixels
+     * of the previous one, down to a single pixel. The averages are taken on premultiplied colors, so that
+     * transparent pixels do not bleed their color into the smaller levels.
+     *
+     * @return The levels of the chain, starting at half the size of the sprite.
+     */
+    private Sprite[] createMipmaps() {
+        int count = 0;
+        for (int size = Math.max(width, height); size > 1; size >>= 1)
+            count++;
+        Sprite[] chain = new Sprite[count];
+        int[] source = pixels;
+        if (!isPremultiplied || offset != 0 || stride != width) {
+            source = new int[width * height];
+            for (int y = 0; y < height; y++)
+                for (int x = 0; x < width; x++) {
+                    int color = pixels[offset + x + y * stride];
+                    source[x + y * width] = isPremultiplied ? color : BlendMode.premultiply(color);
+                }
+        }
+        int sourceWidth = width;
+        int sourceHeight = height;
+        for (int level = 0; level < count; level++) {
+            Sprite mipmap = new Sprite(Math.max(1, sourceWidth >> 1), Math.max(1, sourceHeight >> 1));
+            int[] target = mipmap.pixels;
+            for (int y = 0; y < mipmap.height; y++) {
+                int row0 = 2 * y * sourceWidth;
+                int row1 = Math.min(2 * y + 1, sourceHeight - 1) * sourceWidth;
+                for (int x = 0; x < mipmap.width; x++) {
+                    int x0 = 2 * x;
+                    int x1 = Math.min(x0 + 1, sourceWidth - 1);
+                    int c0 = source[row0 + x0], c1 = source[row0 + x1];
+                    int c2 = source[row1 + x0], c3 = source[row1 + x1];
+                    // Four sums of up to 8 bits fit the 16-bit lanes, so two channels are averaged at once.
+                    int redBlue = (c0 & 0xff00ff) + (c1 & 0xff00ff) + (c2 & 0xff00ff) + (c3 & 0xff00ff) + 0x20002;
+                    int alphaGreen = ((c0 >>> 8) & 0xff00ff) + ((c1 >>> 8) & 0xff00ff)
+                            + ((c2 >>> 8) & 0xff00ff) + ((c3 >>> 8) & 0xff00ff) + 0x20002;
+                    target[x + y * mipmap.width] = ((redBlue >>> 2) & 0xff00ff) | ((alphaGreen << 6) & 0xff00ff00);
+                }
+            }
+            source = target;
+            sourceWidth = mipmap.width;
+            sourceHeight = mipmap.height;
+            mipmap.isPremultiplied = true;
+            chain[level] = mipmap;
+        }
+        if (!isPremultiplied)
+            for (Sprite mipmap : chain)
+                mipmap.unpremultiplyAlpha();
+        return chain;
+    }
+
+    /**
+     * This method gets the classification of the alpha values of the sprite.
+     * It is computed when the sprite is loaded from an image, or on the first call after the sprite was modified.
+     *
+     * @return The opacity of the sprite.
+     */
+    public Opacity getOpacity() {
+        validate();
+        Opacity opacity = this.opacity;
+        if (opacity == null) {
+            opacity = classify();
+            this.opacity = opacity;
+        }
+        return opacity;
+    }
+
+    /**
+     * This method tells the sprite that its pixels were modified, so that the information derived from them,
+     * the opacity, the run-length encoding and the mipmaps, is rebuilt when it is needed next.
+     * Sprites that view the same pixels, like the parent of a view and its other views, rebuild theirs as well.
+     * It is called by setPixel() and by renderers drawing on the sprite,
+     * and has to be called after modifying the array returned by getPixels() directly.
+     */
+    public void markModified() {
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * This method gets how many times the pixels of the sprite were marked modified, through this sprite or
+     * through any other sprite that views the same pixels.
+     * Copies made from the sprite can compare it with the count they were made at to find out if they are stale.
+     *
+     * @return The number of modifications of the pixels.
+     */
+    public int getModificationCount() {
+        return modifications.get();
+    }
+
+    /**
+     * This method discards the information derived from the pixels if they were modified since it was built,
+     * through this sprite or through any other sprite that views the same pixels.
+     */
+    private void validate() {
+        int count = modifications.get();
+        if (validModifications == count)
+            return;
+        opacity = null;
+        runs = null;
+        mipmaps = null;
+        validModifications = count;
+    }
+
+    /**
+     * This method classifies the alpha values of the pixels.
+     *
+     * @return The opacity of the pixels.
+     */
+    private Opacity classify() {
+        boolean isOpaque = true;
+        for (int y = 0; y < height; y++) {
+            for (int i = offset + y * stride, end = i + width; i < end; i++) {
+                int alpha = pixels[i] >>> 24;
+                if (alpha == 0xff)
+                    continue;
+                if (alpha != 0)
+                    return Opacity.TRANSLUCENT;
+                isOpaque = false;
+            }
+        }
+        return isOpaque ? Opacity.OPAQUE : Opacity.BINARY;
+    }
+
+    /**
+     * This method gets the run type of a color.
+     *
+     * @param color The color to check.
+     * @return The type of run the color belongs to.
+     */
+    private static int getRunType(int color) {
+        int alpha = color >>> 24;
+        return alpha == 0 ? RUN_TRANSPARENT : alpha == 0xff ? RUN_OPAQUE : RUN_TRANSLUCENT;
+    }
+
+    /**
+     * This method converts the pixels of the sprite to premultiplied alpha, where every color channel
+     * is already multiplied by the alpha of its pixel.
+     * Renderers blend premultiplied sprites with the cheaper form src + dst * (1 - alpha) in integer arithmetic,
+     * so converting once after loading saves work every time the sprite is drawn.
+     * A global alpha set on the renderer is applied to a premultiplied sprite just like to a straight one.
+     * The color of fully transparent pixels is lost, and pixels set afterwards must be premultiplied as well.
+     */
+    public void premultiplyAlpha() {
+        if (isPremultiplied)
+            return;
+        for (int y = 0; y < height; y++)
+            for (int i = offset + y * stride, end = i + width; i < end; i++)
+                pixels[i] = BlendMode.premultiply(pixels[i]);
+        isPremultiplied = true;
+        markModified();
+    }
+
+    /**
+     * This method converts the pixels of the sprite from premultiplied alpha back to straight alpha.
+     * Channels of translucent pixels may differ slightly from the ones before premultiplyAlpha().
+     */
+    public void unpremultiplyAlpha() {
+        if (!isPremultiplied)
+            return;
+        for (int y = 0; y < height; y++)
+            for (int i = offset + y * stride, end = i + width; i < end; i++)
+                pixels[i] = BlendMode.unpremultiply(pixels[i]);
+        isPremultiplied = false;
+        markModified();
+    }
+
+    /**
+     * This method checks if the pixels of the sprite are stored with premultiplied alpha.
+     *
+     * @return True if the sprite is premultiplied, false otherwise.
+     */
+    public boolean isPremultiplied() {
+        return isPremultiplied;
     }
 
     /**
@@ -314,7 +717,15 @@ public class Sprite {
         File outputFile = new File(path + "/" + name + ".png");
         try {
             BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-            image.setRGB(0, 0, width, height, pixels, 0, width);
+            if (isPremultiplied) {
+                int[] colors = new int[width * height];
+                for (int y = 0; y < height; y++)
+                    for (int x = 0; x < width; x++)
+                        colors[x + y * width] = BlendMode.unpremultiply(pixels[offset + x + y * stride]);
+                image.setRGB(0, 0, width, height, colors, 0, width);
+            } else {
+                image.setRGB(0, 0, width, height, pixels, offset, stride);
+            }
             ImageIO.write(image, "png", outputFile);
             Debug.logInfo(getClass().getSimpleName() + " -> Image saved to: " + outputFile.getAbsolutePath());
         } catch (Exception e) {
@@ -332,7 +743,8 @@ public class Sprite {
     public void setPixel(int x, int y, int color) {
         if (x < 0 || x >= width || y < 0 || y >= height)
             return;
-        pixels[x + y * width] = color;
+        pixels[offset + x + y * stride] = color;
+        markModified();
     }
 
     /**
@@ -345,11 +757,12 @@ public class Sprite {
     public int getPixel(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height)
             return 0;
-        return pixels[x + y * width];
+        return pixels[offset + x + y * stride];
     }
 
     /**
      * This method gets the pixels of the sprite as an int[].
+     * The pixel at x, y is at getOffset() + x + y * getStride(), which is x + y * getWidth() unless the sprite is a view.
      *
      * @return The pixel array of the sprite.
      */
@@ -357,6 +770,33 @@ public class Sprite {
         return pixels;
     }
 
+    /**
+     * This method gets the index of the top left pixel of the sprite in its pixel array.
+     *
+     * @return The offset of the sprite.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * This method gets the distance between the first pixels of two consecutive rows in the pixel array.
+     *
+     * @return The stride of the sprite.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * This method checks if the sprite is a view of a larger pixel array, rather than owning exactly its own pixels.
+     *
+     * @return True if the sprite is a view, false otherwise.
+     */
+    public boolean isView() {
+        return offset != 0 || stride != width || pixels.length != width * height;
+    }
+
     /**
      * This method gets the width of the sprite.
      *
@@ -375,6 +815,100 @@ public class Sprite {
         return height;
     }
 
+    /**
+     * This method gets the normalized x offset of the origin of the sprite.
+     *
+     * @return The normalized x offset of the origin.
+     */
+    public float getOriginX() {
+        return originX;
+    }
+
+    /**
+     * This method gets the normalized y offset of the origin of the sprite.
+     *
+     * @return The normalized y offset of the origin.
+     */
+    public float getOriginY() {
+        return originY;
+    }
+
+    /**
+     * This method gets the x scale of the sprite for the transformed rendering.
+     *
+     * @return The x scale of the sprite.
+     */
+    public float getScaleX() {
+        return scaleX;
+    }
+
+    /**
+     * This method gets the y scale of the sprite for the transformed rendering.
+     *
+     * @return The y scale of the sprite.
+     */
+    public float getScaleY() {
+        return scaleY;
+    }
+
+    /**
+     * This method gets the cosine of the rotation of the sprite for the transformed rendering.
+     *
+     * @return The cosine of the rotation of the sprite.
+     */
+    public float getCos() {
+        return cos;
+    }
+
+    /**
+     * This method gets the sine of the rotation of the sprite for the transformed rendering.
+     *
+     * @return The sine of the rotation of the sprite.
+     */
+    public float getSin() {
+        return sin;
+    }
+
+    /**
+     * This method gets the starting x coordinate of the sprite, relative to its origin,
+     * as computed by the last call to applyTransform().
+     *
+     * @return The starting x coordinate of the transformed sprite.
+     */
+    public int getTransformedStartX() {
+        return transformedStartX;
+    }
+
+    /**
+     * This method gets the starting y coordinate of the sprite, relative to its origin,
+     * as computed by the last call to applyTransform().
+     *
+     * @return The starting y coordinate of the transformed sprite.
+     */
+    public int getTransformedStartY() {
+        return transformedStartY;
+    }
+
+    /**
+     * This method gets the ending x coordinate of the sprite, relative to its origin,
+     * as computed by the last call to applyTransform().
+     *
+     * @return The ending x coordinate of the transformed sprite.
+     */
+    public int getTransformedEndX() {
+        return transformedEndX;
+    }
+
+    /**
+     * This method gets the ending y coordinate of the sprite, relative to its origin,
+     * as computed by the last call to applyTransform().
+     *
+     * @return The ending y coordinate of the transformed sprite.
+     */
+    public int getTransformedEndY() {
+        return transformedEndY;
+    }
+
     /**
      * This method sets the origin offsets of the sprite.
      *